@@ -8,6 +8,16 @@ const api = axios.create({
   withCredentials: true
 })
 
+// 请求拦截器：令牌模式下登录返回token，随请求携带
+api.interceptors.request.use(config => {
+  const info = localStorage.getItem('userInfo')
+  const token = info ? JSON.parse(info).token : null
+  if (token) {
+    config.headers.Authorization = `Bearer ${token}`
+  }
+  return config
+})
+
 // 响应拦截器
 api.interceptors.response.use(
   response => response,
@@ -60,7 +70,11 @@ export const borrowApi = {
   getAll: () => api.get('/borrow'),
   getPage: (params) => api.get('/borrow/page', { params }),
   getByKey: (userid, bookid) => api.get(`/borrow/${userid}/${bookid}`),
+  getByUser: (userid, params) => api.get(`/borrow/user/${userid}`, { params }),
+  getByBook: (bookid, params) => api.get(`/borrow/book/${bookid}`, { params }),
   create: (data) => api.post('/borrow', data),
+  checkout: (userid, bookid) => api.post('/borrow/checkout', { userid, bookid }),
+  returnBook: (userid, bookid) => api.post('/borrow/return', { userid, bookid }),
   update: (userid, bookid, data) => api.put(`/borrow/${userid}/${bookid}`, data),
   delete: (userid, bookid) => api.delete(`/borrow/${userid}/${bookid}`)
 }
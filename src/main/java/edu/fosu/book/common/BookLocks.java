@@ -0,0 +1,32 @@
+package edu.fosu.book.common;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 借还书与导入共用的按 BookID 分段锁，同一本书的库存修改在本进程内串行
+@Component
+public class BookLocks {
+    @Value("${borrow.lock.stripes:256}")
+    private int lockStripes;
+
+    private StripedLocks locks;
+
+    @PostConstruct
+    public void init() {
+        locks = new StripedLocks(lockStripes);
+    }
+
+    public ReentrantLock get(String bookid) {
+        return locks.get(bookid);
+    }
+
+    // 一次锁住多本书时按分段下标顺序取锁，避免两个批次互相等待
+    public List<ReentrantLock> getAll(Collection<String> bookids) {
+        return locks.getAll(bookids);
+    }
+}
@@ -0,0 +1,70 @@
+package edu.fosu.book.common;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分页总数缓存，按(实体, 关键字)缓存 count(*) 结果。
+ * 写操作调用 invalidate 使该实体的版本号加一，旧版本的缓存项随即失效；
+ * 查询开始前先取版本号，避免查询期间发生的写入被一个旧结果覆盖。
+ */
+@Component
+public class CountCache {
+    private static final int MAX_ENTRIES = 10000;
+
+    @Value("${page.count.cache-ttl-seconds:30}")
+    private long ttlSeconds;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public long generation(String entity) {
+        return generations.computeIfAbsent(entity, k -> new AtomicLong()).get();
+    }
+
+    public Long get(String entity, String keyword) {
+        Entry entry = entries.get(key(entity, keyword));
+        if (entry == null) {
+            return null;
+        }
+        if (entry.generation != generation(entity) || entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key(entity, keyword), entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public void put(String entity, String keyword, long value, long generation) {
+        if (ttlSeconds <= 0 || generation != generation(entity)) {
+            return;
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(key(entity, keyword), new Entry(value, generation, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    public void invalidate(String entity) {
+        generations.computeIfAbsent(entity, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static String key(String entity, String keyword) {
+        return entity + '\u0000' + (keyword == null ? "" : keyword);
+    }
+
+    private static final class Entry {
+        final long value;
+        final long generation;
+        final long expiresAt;
+
+        Entry(long value, long generation, long expiresAt) {
+            this.value = value;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
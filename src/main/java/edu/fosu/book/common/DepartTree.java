@@ -0,0 +1,186 @@
+package edu.fosu.book.common;
+
+import edu.fosu.book.dto.DepartNode;
+import edu.fosu.book.entity.Depart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 部门树的不可变快照。按先序遍历给每个部门编号，一个部门的整棵子树是编号上连续的一段
+ * [pos, end)，因此“是否属于某部门的子树”只需比较两个整数；层级深度直接存数组，
+ * 祖先沿父指针上溯，代价与层数成正比。部门变更时整体重建新快照再替换引用，读者不加锁。
+ * 父部门不存在或成环的部门当作根处理，保证每个部门都出现在树里。
+ */
+public final class DepartTree {
+    private static final Comparator<Depart> BY_ID = Comparator.comparing(Depart::getDepartid);
+
+    public static final DepartTree EMPTY = build(Collections.emptyList());
+
+    private final Map<String, Integer> positions;
+    private final String[] ids;
+    private final int[] parents;
+    private final int[] depths;
+    private final int[] ends;
+    private final DepartNode[] nodes;
+    private final List<DepartNode> roots;
+
+    private DepartTree(Builder builder, List<DepartNode> roots) {
+        this.positions = builder.positions;
+        this.ids = builder.ids;
+        this.parents = builder.parents;
+        this.depths = builder.depths;
+        this.ends = builder.ends;
+        this.nodes = builder.nodes;
+        this.roots = roots;
+    }
+
+    public static DepartTree build(List<Depart> departs) {
+        Map<String, Depart> byId = new HashMap<>(departs.size() * 2);
+        for (Depart depart : departs) {
+            byId.put(depart.getDepartid(), depart);
+        }
+        Builder builder = new Builder(departs.size());
+        List<Depart> rootCandidates = new ArrayList<>();
+        for (Depart depart : departs) {
+            String parent = depart.getParentdepartid();
+            if (parent == null || parent.isEmpty() || !byId.containsKey(parent) || parent.equals(depart.getDepartid())) {
+                rootCandidates.add(depart);
+            } else {
+                builder.children.computeIfAbsent(parent, k -> new ArrayList<>()).add(depart);
+            }
+        }
+        builder.children.values().forEach(list -> list.sort(BY_ID));
+        rootCandidates.sort(BY_ID);
+
+        List<DepartNode> roots = new ArrayList<>();
+        for (Depart root : rootCandidates) {
+            roots.add(builder.visit(root, -1));
+        }
+        // 成环的部门从任何根都走不到，按编号取一个断开当作根
+        List<Depart> remaining = new ArrayList<>();
+        for (Depart depart : departs) {
+            if (!builder.positions.containsKey(depart.getDepartid())) {
+                remaining.add(depart);
+            }
+        }
+        remaining.sort(BY_ID);
+        for (Depart depart : remaining) {
+            if (!builder.positions.containsKey(depart.getDepartid())) {
+                roots.add(builder.visit(depart, -1));
+            }
+        }
+        return new DepartTree(builder, Collections.unmodifiableList(roots));
+    }
+
+    public boolean contains(String departid) {
+        return positions.containsKey(departid);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    // departid 是否为 ancestorid 本身或其下级部门
+    public boolean isInSubtree(String ancestorid, String departid) {
+        Integer a = positions.get(ancestorid);
+        Integer d = positions.get(departid);
+        return a != null && d != null && a <= d && d < ends[a];
+    }
+
+    // 根部门深度为0，不存在的部门返回-1
+    public int depth(String departid) {
+        Integer pos = positions.get(departid);
+        return pos == null ? -1 : depths[pos];
+    }
+
+    // 从直接上级到根部门
+    public List<String> ancestors(String departid) {
+        Integer pos = positions.get(departid);
+        if (pos == null) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(depths[pos]);
+        for (int p = parents[pos]; p >= 0; p = parents[p]) {
+            result.add(ids[p]);
+        }
+        return result;
+    }
+
+    // 部门本身及全部下级部门，先序
+    public List<String> subtree(String departid) {
+        Integer pos = positions.get(departid);
+        if (pos == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(ids).subList(pos, ends[pos]));
+    }
+
+    // 先序编号，不存在的部门返回-1；编号只在同一个快照内有效，供调用方建立按部门下标的数组
+    public int indexOf(String departid) {
+        Integer pos = departid == null ? null : positions.get(departid);
+        return pos == null ? -1 : pos;
+    }
+
+    public String idAt(int index) {
+        return ids[index];
+    }
+
+    // 上级部门的编号，根部门返回-1；上级的编号总是小于下级
+    public int parentIndex(int index) {
+        return parents[index];
+    }
+
+    public List<DepartNode> roots() {
+        return roots;
+    }
+
+    // 以某部门为根的子树，部门不存在时返回null
+    public DepartNode node(String departid) {
+        Integer pos = positions.get(departid);
+        return pos == null ? null : nodes[pos];
+    }
+
+    private static final class Builder {
+        final Map<String, List<Depart>> children = new HashMap<>();
+        final Map<String, Integer> positions;
+        final String[] ids;
+        final int[] parents;
+        final int[] depths;
+        final int[] ends;
+        final DepartNode[] nodes;
+        int next;
+
+        Builder(int n) {
+            positions = new HashMap<>(n * 2);
+            ids = new String[n];
+            parents = new int[n];
+            depths = new int[n];
+            ends = new int[n];
+            nodes = new DepartNode[n];
+        }
+
+        // 部门层级很浅，递归深度不成问题；成环时遇到已编号的部门即停止
+        DepartNode visit(Depart depart, int parent) {
+            int pos = next++;
+            positions.put(depart.getDepartid(), pos);
+            ids[pos] = depart.getDepartid();
+            parents[pos] = parent;
+            depths[pos] = parent < 0 ? 0 : depths[parent] + 1;
+            List<DepartNode> list = new ArrayList<>();
+            for (Depart child : children.getOrDefault(depart.getDepartid(), Collections.emptyList())) {
+                if (!positions.containsKey(child.getDepartid())) {
+                    list.add(visit(child, pos));
+                }
+            }
+            ends[pos] = next;
+            nodes[pos] = new DepartNode(ids[pos], depart.getDepartname(), depths[pos], Collections.unmodifiableList(list));
+            return nodes[pos];
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package edu.fosu.book.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 读穿透的实体缓存：按key分段，每段是一个按访问顺序排列的LinkedHashMap，超出容量淘汰最久未访问的项。
+ * 同一个key同时未命中时只有一个线程回源，其余线程等待它的结果，防止热点key击穿数据库。
+ * 实体对象是可变的，读出和写入都做一次拷贝，调用方修改返回值不会影响缓存。
+ */
+public class EntityCache<K, V> {
+    private static final int SEGMENTS = 16;
+
+    private final String name;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final Segment<K, V>[] segments;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    // 每次失效加一，回源期间发生过失效则不把结果放入缓存
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public EntityCache(String name, int maxSize, long ttlSeconds, UnaryOperator<V> copier) {
+        this.name = name;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.copier = copier;
+        this.segments = new Segment[SEGMENTS];
+        int perSegment = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(perSegment, evictions);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        if (key == null) {
+            return null;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        V cached = segment.get(key, System.currentTimeMillis());
+        if (cached != null) {
+            hits.increment();
+            return copier.apply(cached);
+        }
+        misses.increment();
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return copy(join(inFlight));
+        }
+        try {
+            long version = invalidations.get();
+            V value = loader.apply(key);
+            if (value != null && ttlMillis > 0 && version == invalidations.get()) {
+                segment.put(key, copier.apply(value), System.currentTimeMillis() + ttlMillis);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    public void invalidate(K key) {
+        invalidations.incrementAndGet();
+        segmentFor(key).remove(key);
+    }
+
+    public void clear() {
+        invalidations.incrementAndGet();
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    private V copy(V value) {
+        return value == null ? null : copier.apply(value);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, Entry<V>> map;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        V get(K key, long now) {
+            lock.lock();
+            try {
+                Entry<V> entry = map.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.expiresAt < now) {
+                    map.remove(key);
+                    return null;
+                }
+                return entry.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(K key, V value, long expiresAt) {
+            lock.lock();
+            try {
+                map.put(key, new Entry<>(value, expiresAt));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(K key) {
+            lock.lock();
+            try {
+                map.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                map.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
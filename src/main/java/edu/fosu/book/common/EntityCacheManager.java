@@ -0,0 +1,42 @@
+package edu.fosu.book.common;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+// 按名称创建实体缓存，容量和过期时间读取 cache.<name>.max-size / cache.<name>.ttl-seconds
+@Component
+public class EntityCacheManager {
+
+    @Autowired
+    private Environment environment;
+
+    private final Map<String, EntityCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    public <K, V> EntityCache<K, V> create(String name, UnaryOperator<V> copier) {
+        int maxSize = environment.getProperty("cache." + name + ".max-size", Integer.class, 10000);
+        long ttlSeconds = environment.getProperty("cache." + name + ".ttl-seconds", Long.class, 300L);
+        EntityCache<K, V> cache = new EntityCache<>(name, maxSize, ttlSeconds, copier);
+        caches.put(name, cache);
+        return cache;
+    }
+
+    // 绕过服务层直接批量改库后整体清空对应缓存
+    public void clear(String name) {
+        EntityCache<?, ?> cache = caches.get(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+}
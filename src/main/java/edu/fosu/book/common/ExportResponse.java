@@ -0,0 +1,22 @@
+package edu.fosu.book.common;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+// 导出接口的响应：format=csv 时输出CSV附件，其余输出NDJSON（每行一个JSON对象）
+public final class ExportResponse {
+    private ExportResponse() {}
+
+    public static ResponseEntity<StreamingResponseBody> of(String name, String format, StreamingResponseBody body) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + (csv ? ".csv" : ".ndjson") + "\"")
+            .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson"))
+            .body(body);
+    }
+}
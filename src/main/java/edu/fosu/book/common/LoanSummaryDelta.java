@@ -0,0 +1,60 @@
+package edu.fosu.book.common;
+
+import edu.fosu.book.entity.Borrow;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 借阅行变化对用户借阅汇总的增量，按用户累加。每行借阅的贡献为
+ * {在借数, 逾期数, 欠款(分)}：未归还计1本在借，未归还且已计罚款计1本逾期，欠款为罚款减已缴、不小于0。
+ */
+public class LoanSummaryDelta {
+    private final Map<String, long[]> deltas = new HashMap<>();
+
+    // before 为null表示新增，after 为null表示删除
+    public void add(Borrow before, Borrow after) {
+        String userid = before != null ? before.getUserid() : after != null ? after.getUserid() : null;
+        if (userid != null) {
+            add(userid, contribution(before), contribution(after));
+        }
+    }
+
+    public void add(String userid, long[] before, long[] after) {
+        long active = after[0] - before[0];
+        long overdue = after[1] - before[1];
+        long cents = after[2] - before[2];
+        if (active == 0 && overdue == 0 && cents == 0) {
+            return;
+        }
+        long[] total = deltas.computeIfAbsent(userid, k -> new long[3]);
+        total[0] += active;
+        total[1] += overdue;
+        total[2] += cents;
+    }
+
+    public boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+
+    public Map<String, long[]> entries() {
+        return deltas;
+    }
+
+    public static long[] contribution(Borrow borrow) {
+        if (borrow == null) {
+            return new long[3];
+        }
+        return contribution(borrow.getReturntime() == null, cents(borrow.getPenalsum()), cents(borrow.getPayment()));
+    }
+
+    public static long[] contribution(boolean open, long penalCents, long payCents) {
+        return new long[] {open ? 1 : 0, open && penalCents > 0 ? 1 : 0, Math.max(penalCents - payCents, 0)};
+    }
+
+    public static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+}
@@ -0,0 +1,85 @@
+package edu.fosu.book.common;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 登录失败次数的滑动窗口，分别按用户名和IP统计。
+ * 每个key只保存最近 N 次失败的时间（N 为上限），最早那次仍在窗口内就说明窗口内已失败 N 次，
+ * 这时在查库和计算哈希之前直接拒绝。
+ */
+@Component
+public class LoginAttemptTracker {
+    private static final int MAX_KEYS = 100000;
+
+    @Value("${login.attempt.max-failures:5}")
+    private int maxUserFailures;
+
+    @Value("${login.attempt.ip-max-failures:20}")
+    private int maxIpFailures;
+
+    @Value("${login.attempt.window-seconds:300}")
+    private long windowSeconds;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public void check(String username, String ip) {
+        long now = System.currentTimeMillis();
+        if (isBlocked("u:" + username, now) || isBlocked("ip:" + ip, now)) {
+            throw new BusinessException(429, "登录失败次数过多，请稍后再试");
+        }
+    }
+
+    public void recordFailure(String username, String ip) {
+        long now = System.currentTimeMillis();
+        if (windows.size() > MAX_KEYS) {
+            purge(now);
+        }
+        windows.computeIfAbsent("u:" + username, k -> new Window(maxUserFailures)).add(now);
+        windows.computeIfAbsent("ip:" + ip, k -> new Window(maxIpFailures)).add(now);
+    }
+
+    public void reset(String username) {
+        windows.remove("u:" + username);
+    }
+
+    private boolean isBlocked(String key, long now) {
+        Window window = windows.get(key);
+        return window != null && window.isFull(now - windowSeconds * 1000);
+    }
+
+    private void purge(long now) {
+        long since = now - windowSeconds * 1000;
+        windows.values().removeIf(window -> window.latest() < since);
+    }
+
+    private static final class Window {
+        private final long[] times;
+        private int next;
+        private int count;
+
+        Window(int capacity) {
+            this.times = new long[Math.max(1, capacity)];
+        }
+
+        synchronized void add(long time) {
+            times[next] = time;
+            next = (next + 1) % times.length;
+            if (count < times.length) {
+                count++;
+            }
+        }
+
+        synchronized boolean isFull(long since) {
+            // next 指向最早的一次失败
+            return count == times.length && times[next] >= since;
+        }
+
+        synchronized long latest() {
+            return count == 0 ? 0 : times[(next - 1 + times.length) % times.length];
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package edu.fosu.book.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// 游标分页的不透明游标：把上一页最后一行的主键编码为URL安全的Base64
+public final class PageCursor {
+    private static final char SEPARATOR = '\n';
+
+    private PageCursor() {}
+
+    public static String encode(String... keys) {
+        String raw = String.join(String.valueOf(SEPARATOR), keys);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int parts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] keys = raw.split(String.valueOf(SEPARATOR), -1);
+            if (keys.length != parts) {
+                throw new BusinessException(400, "无效的分页游标");
+            }
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(400, "无效的分页游标");
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package edu.fosu.book.common;
+
+import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.dto.PageRow;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 各 /page 接口共用的分页执行器，page.query.mode 可选：
+ * serial   - 先查列表再查总数；
+ * parallel - 总数在线程池中执行，与列表查询并行，各自占用一个连接；
+ * window   - 用 COUNT(*) OVER() 在一条语句里同时取回列表和总数。
+ * 总数命中 CountCache 时只查列表；page.count.estimate=true 时无关键字的总数取自表统计信息。
+ */
+@Component
+public class PageQueryExecutor {
+
+    @FunctionalInterface
+    public interface ListQuery<T> {
+        List<T> select(String keyword, int offset, int size);
+    }
+
+    @FunctionalInterface
+    public interface CountQuery {
+        long count(String keyword);
+    }
+
+    @FunctionalInterface
+    public interface WindowQuery<T> {
+        List<PageRow<T>> select(String keyword, int offset, int size);
+    }
+
+    @Value("${page.query.mode:parallel}")
+    private String mode;
+
+    @Value("${page.count.estimate:false}")
+    private boolean estimate;
+
+    @Autowired
+    private CountCache countCache;
+
+    private final ThreadPoolExecutor countPool;
+
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+    public PageQueryExecutor(@Value("${page.query.threads:8}") int threads) {
+        AtomicInteger seq = new AtomicInteger();
+        // 队列满时由调用线程自己执行，退化为串行而不是报错
+        this.countPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(256),
+            r -> {
+                Thread t = new Thread(r, "page-count-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public <T> PageResult<T> page(String entity, String keyword, int page, int size,
+                                  ListQuery<T> listQuery, CountQuery countQuery, WindowQuery<T> windowQuery,
+                                  LongSupplier estimateQuery) {
+        long start = System.nanoTime();
+        int offset = (page - 1) * size;
+        boolean approximate = estimate && (keyword == null || keyword.isEmpty());
+        String cacheKey = approximate ? "~" : keyword;
+        long generation = countCache.generation(entity);
+        Long cached = countCache.get(entity, cacheKey);
+        if (cached == null && approximate) {
+            cached = estimateQuery.getAsLong();
+            countCache.put(entity, cacheKey, cached, generation);
+        }
+
+        PageResult<T> result;
+        if (cached != null) {
+            result = new PageResult<>(listQuery.select(keyword, offset, size), cached, page, size, approximate);
+            timings.computeIfAbsent(entity, k -> new Timing()).record(System.nanoTime() - start);
+            return result;
+        }
+        switch (mode) {
+            case "serial":
+                result = new PageResult<>(listQuery.select(keyword, offset, size), countQuery.count(keyword), page, size);
+                break;
+            case "window":
+                result = window(keyword, offset, page, size, countQuery, windowQuery);
+                break;
+            default:
+                result = parallel(keyword, offset, page, size, listQuery, countQuery);
+        }
+        countCache.put(entity, cacheKey, result.getTotal(), generation);
+        timings.computeIfAbsent(entity, k -> new Timing()).record(System.nanoTime() - start);
+        return result;
+    }
+
+    private <T> PageResult<T> parallel(String keyword, int offset, int page, int size,
+                                       ListQuery<T> listQuery, CountQuery countQuery) {
+        Future<Long> total = countPool.submit(() -> countQuery.count(keyword));
+        List<T> list;
+        try {
+            list = listQuery.select(keyword, offset, size);
+        } catch (RuntimeException e) {
+            total.cancel(true);
+            throw e;
+        }
+        return new PageResult<>(list, await(total), page, size);
+    }
+
+    private <T> PageResult<T> window(String keyword, int offset, int page, int size,
+                                     CountQuery countQuery, WindowQuery<T> windowQuery) {
+        List<PageRow<T>> rows = windowQuery.select(keyword, offset, size);
+        List<T> list = new ArrayList<>(rows.size());
+        for (PageRow<T> row : rows) {
+            list.add(row.getRow());
+        }
+        long total;
+        if (!rows.isEmpty()) {
+            total = rows.get(0).getTotal();
+        } else if (offset <= 0) {
+            total = 0;
+        } else {
+            // 页码越界时窗口函数拿不到总数，单独补查一次
+            total = countQuery.count(keyword);
+        }
+        return new PageResult<>(list, total, page, size);
+    }
+
+    private static long await(Future<Long> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("分页查询被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BusinessException("分页查询失败: " + e.getCause().getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        timings.forEach((entity, timing) -> stats.put(entity, timing.snapshot()));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        countPool.shutdownNow();
+    }
+
+    private static final class Timing {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        Map<String, Object> snapshot() {
+            long n = count.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", n);
+            map.put("avgMillis", n == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / n);
+            map.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            return map;
+        }
+    }
+}
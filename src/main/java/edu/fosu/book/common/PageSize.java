@@ -0,0 +1,23 @@
+package edu.fosu.book.common;
+
+// 分页接口的每页条数和页码校验，偏移分页和游标分页共用同一个上限
+public final class PageSize {
+    public static final int MAX = 100;
+
+    private PageSize() {}
+
+    public static int check(int size) {
+        if (size < 1 || size > MAX) {
+            throw new BusinessException(400, "size 必须在1到" + MAX + "之间");
+        }
+        return size;
+    }
+
+    // 偏移分页的页码从1开始，小于1时偏移量为负
+    public static int checkPage(int page) {
+        if (page < 1) {
+            throw new BusinessException(400, "page 必须大于等于1");
+        }
+        return page;
+    }
+}
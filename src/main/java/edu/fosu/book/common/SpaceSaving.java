@@ -0,0 +1,126 @@
+package edu.fosu.book.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving 频繁项统计：最多保留 capacity 个计数器，用按计数排序的最小堆组织。
+ * 新键到来且计数器已满时替换计数最小的键，新键继承其计数并记为误差，
+ * 因此任何键的估计值都不低于真实值，且高估不超过 error。内存与不同键的总数无关。
+ * 非线程安全，由调用方加锁。
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        keys = new String[this.capacity];
+        counts = new long[this.capacity];
+        errors = new long[this.capacity];
+        positions = new HashMap<>(this.capacity * 2);
+    }
+
+    public void add(String key, long n) {
+        Integer pos = positions.get(key);
+        if (pos != null) {
+            counts[pos] += n;
+            siftDown(pos);
+            return;
+        }
+        if (size < capacity) {
+            keys[size] = key;
+            counts[size] = n;
+            errors[size] = 0;
+            positions.put(key, size);
+            siftUp(size++);
+            return;
+        }
+        // 替换堆顶（计数最小的键）
+        positions.remove(keys[0]);
+        long min = counts[0];
+        keys[0] = key;
+        errors[0] = min;
+        counts[0] = min + n;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            keys[i] = null;
+        }
+        positions.clear();
+        size = 0;
+    }
+
+    // 按下标 [0, size) 遍历计数器，顺序无意义
+    public String key(int i) {
+        return keys[i];
+    }
+
+    public long count(int i) {
+        return counts[i];
+    }
+
+    public long error(int i) {
+        return errors[i];
+    }
+
+    // 快照恢复时直接放回计数与误差
+    public void restore(String key, long count, long error) {
+        add(key, count);
+        Integer pos = positions.get(key);
+        if (pos != null && errors[pos] < error) {
+            errors[pos] = error;
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[parent] <= counts[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+            if (counts[i] <= counts[smallest]) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        long c = counts[a];
+        counts[a] = counts[b];
+        counts[b] = c;
+        long e = errors[a];
+        errors[a] = errors[b];
+        errors[b] = e;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+}
@@ -0,0 +1,47 @@
+package edu.fosu.book.common;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按键哈希到固定数量的锁上。同一个键总是拿到同一把锁，不同键大多落在不同的锁上，
+ * 既能串行化同一对象上的竞争写操作，又不会让无关对象互相等待。
+ */
+public class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(int stripes) {
+        // 取不小于 stripes 的2的幂，便于用位运算取模
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock get(String key) {
+        return locks[index(key)];
+    }
+
+    // 多个键对应的锁去重后按下标排序，调用方按此顺序加锁不会死锁
+    public List<ReentrantLock> getAll(Collection<String> keys) {
+        BitSet used = new BitSet(locks.length);
+        for (String key : keys) {
+            used.set(index(key));
+        }
+        List<ReentrantLock> result = new ArrayList<>(used.cardinality());
+        for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+            result.add(locks[i]);
+        }
+        return result;
+    }
+
+    private int index(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & (locks.length - 1);
+    }
+}
@@ -0,0 +1,179 @@
+package edu.fosu.book.common;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 分层时间轮。共 LEVELS 层，每层 64 个槽，第 l 层一个槽跨 64^l 个刻度，
+ * 到期时间离当前越远放在越高的层，低层转完一圈时把上一层对应槽里的条目重新分配到低层。
+ * 条目存放在平行的原始类型数组里，用下标作句柄，槽内是双向链表，插入、取消都是 O(1)，
+ * 每前进一个刻度只处理一个槽。非线程安全，由调用方加锁。
+ */
+public class TimingWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int NONE = -1;
+
+    private final long tickMillis;
+    private long currentTick;
+
+    // 各槽链表头，下标为 层 * 64 + 槽
+    private final int[] heads = new int[LEVELS * SLOTS];
+
+    // 条目：到期刻度、所在槽、前后指针；空闲条目用 next 串成空闲链表
+    private long[] deadlines;
+    private int[] buckets;
+    private int[] next;
+    private int[] prev;
+    private int freeHead = NONE;
+    private int allocated;
+    private int size;
+
+    public TimingWheel(long tickMillis, long nowMillis, int initialCapacity) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.currentTick = nowMillis / this.tickMillis;
+        Arrays.fill(heads, NONE);
+        int capacity = Math.max(16, initialCapacity);
+        deadlines = new long[capacity];
+        buckets = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+    }
+
+    // 新建条目并返回句柄；已经到期的条目在下一次 advance 时触发
+    public int schedule(long deadlineMillis) {
+        int handle;
+        if (freeHead != NONE) {
+            handle = freeHead;
+            freeHead = next[handle];
+        } else {
+            if (allocated == deadlines.length) {
+                grow();
+            }
+            handle = allocated++;
+        }
+        size++;
+        place(handle, toTick(deadlineMillis), currentTick + 1);
+        return handle;
+    }
+
+    // 修改已有条目的到期时间，已触发的条目也可以重新排入
+    public void reschedule(int handle, long deadlineMillis) {
+        unlink(handle);
+        place(handle, toTick(deadlineMillis), currentTick + 1);
+    }
+
+    // 释放条目，句柄随后会被复用
+    public void cancel(int handle) {
+        unlink(handle);
+        buckets[handle] = NONE;
+        next[handle] = freeHead;
+        freeHead = handle;
+        size--;
+    }
+
+    /**
+     * 推进到 nowMillis，依次回调到期条目的句柄。回调时条目已从轮上摘下但仍占用句柄，
+     * 调用方须 reschedule 或 cancel。
+     */
+    public void advance(long nowMillis, IntConsumer expired) {
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            long tick = ++currentTick;
+            // 先从高层往低层分配，低层这一格的条目才是完整的
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & ((1L << (BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) ((tick >>> (BITS * level)) & MASK));
+                }
+            }
+            int bucket = (int) (tick & MASK);
+            int handle = heads[bucket];
+            heads[bucket] = NONE;
+            while (handle != NONE) {
+                int following = next[handle];
+                buckets[handle] = NONE;
+                expired.accept(handle);
+                handle = following;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 已分配过的句柄上限，调用方据此扩容自己的平行数组
+    public int capacity() {
+        return deadlines.length;
+    }
+
+    public long deadlineMillis(int handle) {
+        return deadlines[handle] * tickMillis;
+    }
+
+    private long toTick(long millis) {
+        // 向上取整，保证不会提前触发
+        return (millis + tickMillis - 1) / tickMillis;
+    }
+
+    // 新排入的条目最早放到下一刻度；分配时当前刻度的槽尚未处理，可以放到当前刻度
+    private void place(int handle, long tick, long earliest) {
+        long deadline = Math.max(tick, earliest);
+        deadlines[handle] = deadline;
+        long delta = deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        long slotTick = deadline;
+        if (level == LEVELS - 1 && delta >= (1L << (BITS * LEVELS))) {
+            // 超出最高层范围的放在最高层最远的槽，转到时再重新分配
+            slotTick = currentTick + (1L << (BITS * LEVELS)) - 1;
+        }
+        int bucket = level * SLOTS + (int) ((slotTick >>> (BITS * level)) & MASK);
+        buckets[handle] = bucket;
+        prev[handle] = NONE;
+        next[handle] = heads[bucket];
+        if (heads[bucket] != NONE) {
+            prev[heads[bucket]] = handle;
+        }
+        heads[bucket] = handle;
+    }
+
+    private void unlink(int handle) {
+        int bucket = buckets[handle];
+        if (bucket == NONE) {
+            return;
+        }
+        if (prev[handle] != NONE) {
+            next[prev[handle]] = next[handle];
+        } else {
+            heads[bucket] = next[handle];
+        }
+        if (next[handle] != NONE) {
+            prev[next[handle]] = prev[handle];
+        }
+        buckets[handle] = NONE;
+    }
+
+    private void cascade(int level, int slot) {
+        int bucket = level * SLOTS + slot;
+        int handle = heads[bucket];
+        heads[bucket] = NONE;
+        while (handle != NONE) {
+            int following = next[handle];
+            place(handle, deadlines[handle], currentTick);
+            handle = following;
+        }
+    }
+
+    private void grow() {
+        int capacity = deadlines.length << 1;
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        buckets = Arrays.copyOf(buckets, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,29 @@
+package edu.fosu.book.common;
+
+import edu.fosu.book.dao.UserMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 按用户数把 UserID 切成 n 个左闭右开区间 [low, high)，首段 low 与末段 high 为null表示不设界
+@Component
+public class UserIdPartitioner {
+
+    @Autowired
+    private UserMapper userMapper;
+
+    public List<String[]> split(int n) {
+        long users = userMapper.countAll(null);
+        int parts = (int) Math.max(1, Math.min(n, users));
+        List<String[]> ranges = new ArrayList<>(parts);
+        String low = null;
+        for (int i = 0; i < parts; i++) {
+            String high = i + 1 < parts ? userMapper.selectIdAt(users * (i + 1) / parts) : null;
+            ranges.add(new String[] {low, high});
+            low = high;
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,206 @@
+package edu.fosu.book.common;
+
+import edu.fosu.book.dao.EntityVersionMapper;
+import edu.fosu.book.entity.EntityVersion;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * 每张表一个版本号，每行按ID哈希落到固定数量的分段上，版本号存在 entityversion 表里，由服务层写操作递增。
+ * 各实例在内存里缓存版本号，距上次同步超过 http.cache.version-sync-ms 时只拉取比已知表版本新的行；
+ * 本实例的写操作之后立即重新同步。ETag 由共享的版本号拼成，多实例下同一版本的 ETag 相同，
+ * 其他实例的修改最迟一个同步间隔后反映到 ETag 上。请求带的 If-None-Match 与当前版本一致时直接返回304，
+ * 不查业务表也不做JSON序列化。分段只会让无关行偶尔多失效一次，不会漏掉变更。
+ * 每次递增同时在 entitychange 记下改动的行；同步时先把新版本内改动的行交给 onChange 注册的回调，
+ * 失效本实例的缓存和内存索引，再公布新版本，响应体不会比它的 ETag 旧。注册了回调的表按同步间隔定时同步。
+ */
+@Component
+public class VersionRegistry {
+    private static final Logger log = LoggerFactory.getLogger(VersionRegistry.class);
+    private static final int ROW_STRIPES = 4096;
+    private static final int TABLE = -1;
+    private static final int CHANGE_CHUNK = 1000;
+
+    @Autowired
+    EntityVersionMapper versionMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${http.cache.max-age-seconds:0}")
+    private long maxAgeSeconds;
+
+    @Value("${http.cache.version-sync-ms:1000}")
+    private long syncMillis;
+
+    private TransactionTemplate transactionTemplate;
+    private final Map<String, Versions> tables = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<List<String>>>> listeners = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void bump(String table, String id) {
+        bumpAll(table, id == null ? List.of() : List.of(id));
+    }
+
+    // 一次写入涉及多行时只递增一次表版本
+    public void bumpAll(String table, Collection<String> ids) {
+        Set<Integer> stripes = new TreeSet<>();
+        for (String id : ids) {
+            stripes.add(stripe(id));
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                versionMapper.bumpTable(table);
+                long version = versionMapper.selectTableVersion(table);
+                if (!stripes.isEmpty()) {
+                    versionMapper.bumpStripes(table, stripes, version);
+                }
+                List<String> list = new ArrayList<>(ids);
+                for (int i = 0; i < list.size(); i += CHANGE_CHUNK) {
+                    versionMapper.recordChanges(table, list.subList(i, Math.min(list.size(), i + CHANGE_CHUNK)), version);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 数据已经写入，版本号写失败不影响本次请求；其他实例要等下一次成功的递增才会失效
+            log.warn("{}表版本号递增失败: {}", table, e.getMessage());
+        }
+        versions(table).stale = true;
+    }
+
+    // 注册某张表的行改动回调(包括本实例自己的写入)，用于失效本实例的缓存和内存索引；注册之前的改动不回调
+    public void onChange(String table, Consumer<List<String>> listener) {
+        listeners.computeIfAbsent(table, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    // 内存索引不经过 ETag 读取也要跟上其他实例的写入
+    @Scheduled(fixedDelayString = "${http.cache.version-sync-ms:1000}")
+    public void syncListened() {
+        for (String table : listeners.keySet()) {
+            try {
+                current(table);
+            } catch (RuntimeException e) {
+                log.warn("{}表版本号同步失败: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    public String tableEtag(String table) {
+        return "\"" + table + "-" + current(table).table + "\"";
+    }
+
+    public String rowEtag(String table, String id) {
+        return "\"" + table + "-r" + current(table).rows.get(stripe(id)) + "\"";
+    }
+
+    // 设置缓存头；请求的 If-None-Match 与 etag 一致时返回 true，响应已被置为304
+    public boolean notModified(WebRequest request, String etag) {
+        if (request instanceof ServletWebRequest) {
+            HttpServletResponse response = ((ServletWebRequest) request).getResponse();
+            if (response != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, maxAgeSeconds > 0
+                    ? "private, max-age=" + maxAgeSeconds
+                    : "private, no-cache");
+            }
+        }
+        return request.checkNotModified(etag);
+    }
+
+    private Versions current(String table) {
+        Versions versions = versions(table);
+        if (versions.stale || System.currentTimeMillis() - versions.syncedAt >= syncMillis) {
+            synchronized (versions) {
+                if (versions.stale || System.currentTimeMillis() - versions.syncedAt >= syncMillis) {
+                    sync(table, versions);
+                }
+            }
+        }
+        return versions;
+    }
+
+    // 先清标记再查询，查询期间发生的递增会留下新的标记，下次读取时再同步
+    private void sync(String table, Versions versions) {
+        versions.stale = false;
+        long latest = versions.table;
+        List<EntityVersion> stripes = new ArrayList<>();
+        for (EntityVersion row : versionMapper.selectChanged(table, versions.table)) {
+            if (row.getStripe() == TABLE) {
+                latest = Math.max(latest, row.getVersion());
+            } else if (row.getStripe() >= 0 && row.getStripe() < ROW_STRIPES) {
+                stripes.add(row);
+            }
+        }
+        notifyChanges(table, versions, latest);
+        // 回调先于新版本生效：读到新 ETag 时缓存和索引已经失效；分段先于表版本更新
+        for (EntityVersion row : stripes) {
+            versions.rows.set(row.getStripe(), row.getVersion());
+        }
+        versions.table = latest;
+        versions.syncedAt = System.currentTimeMillis();
+    }
+
+    private void notifyChanges(String table, Versions versions, long latest) {
+        List<Consumer<List<String>>> targets = listeners.get(table);
+        if (targets == null || latest <= versions.changesSeen) {
+            return;
+        }
+        // 第一次同步只记下位置，各服务启动时已经从库里装入了全部数据
+        if (versions.changesSeen >= 0) {
+            List<String> ids = versionMapper.selectChangedIds(table, versions.changesSeen, latest);
+            if (!ids.isEmpty()) {
+                for (Consumer<List<String>> target : targets) {
+                    try {
+                        target.accept(ids);
+                    } catch (RuntimeException e) {
+                        log.warn("{}表{}行改动回调失败: {}", table, ids.size(), e.getMessage());
+                    }
+                }
+            }
+        }
+        versions.changesSeen = latest;
+    }
+
+    private Versions versions(String table) {
+        return tables.computeIfAbsent(table, k -> new Versions());
+    }
+
+    private static int stripe(String id) {
+        int h = id.trim().toLowerCase().hashCode();
+        h ^= (h >>> 16);
+        return h & (ROW_STRIPES - 1);
+    }
+
+    private static final class Versions {
+        final AtomicLongArray rows = new AtomicLongArray(ROW_STRIPES);
+        volatile long table;
+        volatile long syncedAt;
+        volatile boolean stale;
+        // 已回调过的表版本，-1 表示还没有同步过
+        volatile long changesSeen = -1;
+    }
+}
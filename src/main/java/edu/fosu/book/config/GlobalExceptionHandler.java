@@ -2,6 +2,7 @@ package edu.fosu.book.config;
 
 import edu.fosu.book.common.BusinessException;
 import edu.fosu.book.common.Result;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -31,6 +32,11 @@ public class GlobalExceptionHandler {
         return Result.error(400, message);
     }
 
+    @ExceptionHandler(DuplicateKeyException.class)
+    public Result<?> handleDuplicateKeyException(DuplicateKeyException e) {
+        return Result.error(400, "记录已存在");
+    }
+
     @ExceptionHandler(Exception.class)
     public Result<?> handleException(Exception e) {
         e.printStackTrace();
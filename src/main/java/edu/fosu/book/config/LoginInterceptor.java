@@ -2,17 +2,27 @@ package edu.fosu.book.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.fosu.book.common.Result;
+import edu.fosu.book.dto.UserInfo;
+import edu.fosu.book.service.TokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 @Component
 public class LoginInterceptor implements HandlerInterceptor {
 
+    public static final String USER_ATTRIBUTE = "user";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Autowired
+    private TokenService tokenService;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         // 放行OPTIONS请求（CORS预检）
@@ -20,9 +30,20 @@ public class LoginInterceptor implements HandlerInterceptor {
             return true;
         }
 
-        HttpSession session = request.getSession(false);
-        if (session != null && session.getAttribute("user") != null) {
-            return true;
+        // 令牌校验只依赖签名密钥，任何节点都可以处理
+        String token = bearerToken(request);
+        if (token != null) {
+            UserInfo user = tokenService.verify(token);
+            if (user != null) {
+                request.setAttribute(USER_ATTRIBUTE, user);
+                return true;
+            }
+        } else if (!tokenService.isTokenMode()) {
+            HttpSession session = request.getSession(false);
+            if (session != null && session.getAttribute(USER_ATTRIBUTE) != null) {
+                request.setAttribute(USER_ATTRIBUTE, session.getAttribute(USER_ATTRIBUTE));
+                return true;
+            }
         }
 
         // 未登录，返回401
@@ -31,4 +52,12 @@ public class LoginInterceptor implements HandlerInterceptor {
         response.getWriter().write(objectMapper.writeValueAsString(Result.error(401, "未登录，请先登录")));
         return false;
     }
+
+    public static String bearerToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            return header.substring(BEARER_PREFIX.length());
+        }
+        return null;
+    }
 }
@@ -19,6 +19,7 @@ public class WebMvcConfig implements WebMvcConfigurer {
                     "/auth/login",
                     "/auth/logout",
                     "/auth/register",
+                    "/auth/check-username",
                     "/error"
                 );
     }
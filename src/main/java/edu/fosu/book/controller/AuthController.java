@@ -1,17 +1,23 @@
 package edu.fosu.book.controller;
 
 import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.LoginAttemptTracker;
 import edu.fosu.book.common.Result;
+import edu.fosu.book.config.LoginInterceptor;
 import edu.fosu.book.dao.UserMapper;
 import edu.fosu.book.dto.ChangePasswordRequest;
 import edu.fosu.book.dto.LoginRequest;
 import edu.fosu.book.dto.RegisterRequest;
 import edu.fosu.book.dto.UserInfo;
 import edu.fosu.book.entity.User;
+import edu.fosu.book.service.PasswordService;
+import edu.fosu.book.service.TokenService;
+import edu.fosu.book.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -21,7 +27,17 @@ public class AuthController {
     @Autowired
     private UserMapper userMapper;
 
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private PasswordService passwordService;
+
+    @Autowired
+    private LoginAttemptTracker loginAttemptTracker;
 
     @PostMapping("/register")
     public Result<Void> register(@Valid @RequestBody RegisterRequest request) {
@@ -30,24 +46,12 @@ public class AuthController {
             throw new BusinessException(400, "两次输入的密码不一致");
         }
 
-        // 检查用户ID是否已存在
-        User existingUser = userMapper.selectByPrimaryKey(request.getUserid());
-        if (existingUser != null) {
-            throw new BusinessException(400, "该用户ID已被注册");
-        }
-
-        // 检查用户名是否已存在
-        User existingUsername = userMapper.selectByUsername(request.getUsername());
-        if (existingUsername != null) {
-            throw new BusinessException(400, "该用户名已被使用");
-        }
-
         // 创建新用户
         User user = new User();
         user.setUserid(request.getUserid());
         user.setUsername(request.getUsername());
         // 密码使用BCrypt加密
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordService.encode(request.getPassword()));
         user.setPhonenum(request.getPhonenum());
         user.setSex(request.getSex());
         // 空字符串转为null，避免外键约束错误
@@ -59,49 +63,83 @@ public class AuthController {
         // 默认角色为普通用户
         user.setRole("user");
 
-        userMapper.insert(user);
+        // 不预先查重，直接插入，由主键和用户名唯一索引保证不重复
+        try {
+            userService.insertUser(user);
+        } catch (DuplicateKeyException e) {
+            if (e.getMessage() != null && e.getMessage().contains("uk_tuser_username")) {
+                throw new BusinessException(400, "该用户名已被使用");
+            }
+            throw new BusinessException(400, "该用户ID已被注册");
+        }
 
         return Result.success();
     }
 
+    @GetMapping("/check-username")
+    public Result<Boolean> checkUsername(@RequestParam String username) {
+        return Result.success(userService.isUsernameAvailable(username));
+    }
+
     @PostMapping("/login")
-    public Result<UserInfo> login(@Valid @RequestBody LoginRequest request, HttpSession session) {
+    public Result<UserInfo> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        // 经过受信任的代理时已由容器换成 X-Forwarded-For 中的客户端地址，见 server.forward-headers-strategy
+        String ip = httpRequest.getRemoteAddr();
+        // 失败次数超限时在查库和计算哈希之前拒绝
+        loginAttemptTracker.check(request.getUsername(), ip);
+
         User user = userMapper.selectByUsername(request.getUsername());
         if (user == null) {
+            loginAttemptTracker.recordFailure(request.getUsername(), ip);
             throw new BusinessException(401, "用户名或密码错误");
         }
 
         // 验证密码（支持明文和BCrypt加密两种方式）
-        boolean passwordMatch = false;
-        if (user.getPassword().startsWith("$2a$")) {
-            // BCrypt加密的密码
-            passwordMatch = passwordEncoder.matches(request.getPassword(), user.getPassword());
-        } else {
-            // 明文密码（兼容旧数据）
-            passwordMatch = user.getPassword().equals(request.getPassword());
-        }
-
-        if (!passwordMatch) {
+        if (!passwordService.matches(request.getPassword(), user.getPassword())) {
+            loginAttemptTracker.recordFailure(request.getUsername(), ip);
             throw new BusinessException(401, "用户名或密码错误");
         }
+        loginAttemptTracker.reset(request.getUsername());
 
-        // 创建用户信息并存入session
         UserInfo userInfo = new UserInfo(user.getUserid(), user.getUsername(),
             user.getRole() != null ? user.getRole() : "user", user.getDepartid());
-        session.setAttribute("user", userInfo);
+        if (tokenService.isTokenMode()) {
+            // 令牌模式：签发令牌，不创建session
+            userInfo.setToken(tokenService.issue(userInfo));
+        } else {
+            // 创建用户信息并存入session
+            httpRequest.getSession().setAttribute(LoginInterceptor.USER_ATTRIBUTE, userInfo);
+        }
 
         return Result.success(userInfo);
     }
 
     @PostMapping("/logout")
-    public Result<Void> logout(HttpSession session) {
-        session.invalidate();
+    public Result<Void> logout(HttpServletRequest httpRequest) {
+        String token = LoginInterceptor.bearerToken(httpRequest);
+        if (token != null) {
+            tokenService.revoke(token);
+        }
+        HttpSession session = httpRequest.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
         return Result.success();
     }
 
+    @PostMapping("/refresh")
+    public Result<UserInfo> refresh(HttpServletRequest httpRequest) {
+        String token = tokenService.refresh(LoginInterceptor.bearerToken(httpRequest));
+        if (token == null) {
+            throw new BusinessException(401, "令牌无效或已过期");
+        }
+        UserInfo userInfo = tokenService.verify(token);
+        userInfo.setToken(token);
+        return Result.success(userInfo);
+    }
+
     @GetMapping("/current")
-    public Result<UserInfo> getCurrentUser(HttpSession session) {
-        UserInfo user = (UserInfo) session.getAttribute("user");
+    public Result<UserInfo> getCurrentUser(@RequestAttribute(name = LoginInterceptor.USER_ATTRIBUTE, required = false) UserInfo user) {
         if (user == null) {
             throw new BusinessException(401, "未登录");
         }
@@ -109,8 +147,8 @@ public class AuthController {
     }
 
     @PostMapping("/change-password")
-    public Result<Void> changePassword(@Valid @RequestBody ChangePasswordRequest request, HttpSession session) {
-        UserInfo userInfo = (UserInfo) session.getAttribute("user");
+    public Result<Void> changePassword(@Valid @RequestBody ChangePasswordRequest request,
+                                       @RequestAttribute(name = LoginInterceptor.USER_ATTRIBUTE, required = false) UserInfo userInfo) {
         if (userInfo == null) {
             throw new BusinessException(401, "未登录");
         }
@@ -127,20 +165,13 @@ public class AuthController {
         }
 
         // 验证原密码
-        boolean passwordMatch = false;
-        if (user.getPassword().startsWith("$2a$")) {
-            passwordMatch = passwordEncoder.matches(request.getOldPassword(), user.getPassword());
-        } else {
-            passwordMatch = user.getPassword().equals(request.getOldPassword());
-        }
-
-        if (!passwordMatch) {
+        if (!passwordService.matches(request.getOldPassword(), user.getPassword())) {
             throw new BusinessException(400, "原密码错误");
         }
 
         // 更新密码
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-        userMapper.updateByPrimaryKey(user);
+        user.setPassword(passwordService.encode(request.getNewPassword()));
+        userService.updateByPrimaryKey(user);
 
         return Result.success();
     }
@@ -1,14 +1,37 @@
 package edu.fosu.book.controller;
 
 import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.ExportResponse;
+import edu.fosu.book.common.PageCursor;
+import edu.fosu.book.common.PageSize;
+import edu.fosu.book.common.PageQueryExecutor;
 import edu.fosu.book.common.Result;
+import edu.fosu.book.common.VersionRegistry;
 import edu.fosu.book.dao.BookMapper;
+import edu.fosu.book.dto.BookFacets;
+import edu.fosu.book.dto.CursorPageResult;
+import edu.fosu.book.dto.ImportReport;
 import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.dto.Suggestion;
+import edu.fosu.book.dto.TrendingBook;
 import edu.fosu.book.entity.Book;
+import edu.fosu.book.entity.Inventory;
+import edu.fosu.book.service.BookFacetService;
+import edu.fosu.book.service.BookSearchService;
+import edu.fosu.book.service.ExportService;
+import edu.fosu.book.service.ImportService;
 import edu.fosu.book.service.BookService;
+import edu.fosu.book.service.BookSuggestService;
+import edu.fosu.book.service.BorrowService;
+import edu.fosu.book.service.TrendingService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -21,8 +44,39 @@ public class BookController {
     @Autowired
     private BookMapper bookMapper;
 
+    @Autowired
+    private PageQueryExecutor pageQueryExecutor;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookSuggestService bookSuggestService;
+
+    @Autowired
+    private BookFacetService bookFacetService;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private VersionRegistry versionRegistry;
+
     @GetMapping("/{id}")
-    public Result<Book> getBookById(@PathVariable String id) {
+    public Result<Book> getBookById(@PathVariable String id, WebRequest webRequest) {
+        // 版本未变时直接返回304，不查库
+        if (versionRegistry.notModified(webRequest, versionRegistry.rowEtag("book", id))) {
+            return null;
+        }
         Book book = bookService.selectByPrimaryKey(id);
         if (book != null) {
             return Result.success(book);
@@ -31,21 +85,91 @@ public class BookController {
         }
     }
 
+    @GetMapping("/{id}/inventory")
+    public Result<Inventory> getInventory(@PathVariable String id) {
+        return Result.success(borrowService.getInventory(id));
+    }
+
+    // 调整馆藏总册数，可用册数随之增减，不能少于已借出的册数
+    @PutMapping("/{id}/inventory")
+    public Result<Inventory> updateInventory(@PathVariable String id, @RequestBody Inventory inventory) {
+        if (inventory.getTotal() == null) {
+            throw new BusinessException(400, "总册数不能为空");
+        }
+        return Result.success(borrowService.updateCopies(id, inventory.getTotal()));
+    }
+
     @GetMapping
-    public Result<List<Book>> getAllBooks() {
+    public Result<List<Book>> getAllBooks(WebRequest webRequest) {
+        if (versionRegistry.notModified(webRequest, versionRegistry.tableEtag("book"))) {
+            return null;
+        }
         List<Book> books = bookService.getAllBooks();
         return Result.success(books);
     }
 
+    @GetMapping("/suggest")
+    public Result<List<Suggestion>> suggest(@RequestParam String prefix,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        return Result.success(bookSuggestService.suggest(prefix, limit));
+    }
+
+    // 借阅最多的图书，按最近 1h/24h/7d 的借出次数排序
+    @GetMapping("/trending")
+    public Result<List<TrendingBook>> trending(@RequestParam(defaultValue = "24h") String window,
+                                               @RequestParam(defaultValue = "10") int limit) {
+        return Result.success(trendingService.top(window, limit));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "ndjson") String format) {
+        return ExportResponse.of("book", format, out -> exportService.exportBooks(format, out));
+    }
+
     @GetMapping("/page")
-    public Result<PageResult<Book>> getBookPage(
+    public Result<?> getBookPage(
             @RequestParam(defaultValue = "") String keyword,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        int offset = (page - 1) * size;
-        List<Book> list = bookMapper.selectPage(keyword, offset, size);
-        long total = bookMapper.countAll(keyword);
-        return Result.success(new PageResult<>(list, total, page, size));
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            WebRequest webRequest) {
+        PageSize.check(size);
+        PageSize.checkPage(page);
+        // ETag只取决于图书表版本，同一URL的分页结果在表未变更时不变
+        if (versionRegistry.notModified(webRequest, versionRegistry.tableEtag("book"))) {
+            return null;
+        }
+        // 传入after时使用游标分页，after为空串表示第一页
+        if (after != null) {
+            String last = after.isEmpty() ? null : PageCursor.decode(after, 1)[0];
+            List<Book> rows = bookMapper.selectPageAfter(keyword, last, size + 1);
+            return Result.success(CursorPageResult.of(rows, size, b -> PageCursor.encode(b.getBookid())));
+        }
+        return Result.success(searchPage(keyword, page, size));
+    }
+
+    // 分页结果与出版社、年份、价格区间的分面计数一次返回，计数同样按关键字过滤
+    @GetMapping("/facets")
+    public Result<BookFacets> getBookFacets(
+            @RequestParam(defaultValue = "") String keyword,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        PageSize.check(size);
+        PageSize.checkPage(page);
+        if (versionRegistry.notModified(webRequest, versionRegistry.tableEtag("book"))) {
+            return null;
+        }
+        return Result.success(bookFacetService.facets(keyword, searchPage(keyword, page, size)));
+    }
+
+    private PageResult<Book> searchPage(String keyword, int page, int size) {
+        // 关键字检索走内存倒排索引，索引未就绪时回退到数据库
+        if (!keyword.isEmpty() && bookSearchService.isReady()) {
+            return bookSearchService.search(keyword, page, size);
+        }
+        return pageQueryExecutor.page("book", keyword, page, size,
+            bookMapper::selectPage, bookMapper::countAll, bookMapper::selectPageWithTotal, bookMapper::estimateCount);
     }
 
     @PostMapping
@@ -58,6 +182,13 @@ public class BookController {
         }
     }
 
+    // 请求体为JSON数组，Content-Type 为 text/csv 时按带表头的CSV解析
+    @PostMapping("/import")
+    public Result<ImportReport> importBooks(HttpServletRequest request) throws IOException {
+        boolean csv = request.getContentType() != null && request.getContentType().contains("csv");
+        return Result.success(importService.importBooks(request.getInputStream(), csv));
+    }
+
     @PutMapping("/{id}")
     public Result<Book> updateBookById(@PathVariable String id, @RequestBody Book book) {
         if (!id.equals(book.getBookid())) {
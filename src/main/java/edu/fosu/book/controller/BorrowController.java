@@ -1,15 +1,38 @@
 package edu.fosu.book.controller;
 
 import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.ExportResponse;
+import edu.fosu.book.common.PageCursor;
+import edu.fosu.book.common.PageSize;
+import edu.fosu.book.common.PageQueryExecutor;
 import edu.fosu.book.common.Result;
 import edu.fosu.book.dao.BorrowMapper;
+import edu.fosu.book.dto.ArchiveReport;
+import edu.fosu.book.dto.BorrowView;
+import edu.fosu.book.dto.CursorPageResult;
+import edu.fosu.book.dto.FineReport;
+import edu.fosu.book.dto.HoldPosition;
+import edu.fosu.book.dto.ImportReport;
 import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.entity.BookHold;
 import edu.fosu.book.entity.Borrow;
+import edu.fosu.book.service.ArchiveService;
+import edu.fosu.book.service.ExportService;
+import edu.fosu.book.service.FineService;
+import edu.fosu.book.service.HoldService;
+import edu.fosu.book.service.ImportService;
 import edu.fosu.book.service.BorrowService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/borrow")
@@ -21,6 +44,24 @@ public class BorrowController {
     @Autowired
     private BorrowMapper borrowMapper;
 
+    @Autowired
+    private PageQueryExecutor pageQueryExecutor;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private FineService fineService;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private HoldService holdService;
+
     @GetMapping("/{userid}/{bookid}")
     public Result<Borrow> getBorrowByPrimaryKey(@PathVariable String userid, @PathVariable String bookid) {
         Borrow borrow = borrowService.selectByPrimaryKey(userid, bookid);
@@ -37,15 +78,56 @@ public class BorrowController {
         return Result.success(borrows);
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBorrows(@RequestParam(defaultValue = "ndjson") String format) {
+        return ExportResponse.of("borrow", format, out -> exportService.exportBorrows(format, out));
+    }
+
     @GetMapping("/page")
-    public Result<PageResult<Borrow>> getBorrowPage(
+    public Result<?> getBorrowPage(
             @RequestParam(defaultValue = "") String keyword,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        int offset = (page - 1) * size;
-        List<Borrow> list = borrowMapper.selectPage(keyword, offset, size);
-        long total = borrowMapper.countAll(keyword);
-        return Result.success(new PageResult<>(list, total, page, size));
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "hot") String scope,
+            @RequestParam(defaultValue = "false") boolean view) {
+        PageSize.check(size);
+        PageSize.checkPage(page);
+        if (!"hot".equals(scope) && !"history".equals(scope)) {
+            throw new BusinessException(400, "scope 只能是 hot 或 history");
+        }
+        // scope=history 查询已归档的历史表，默认只查当前借阅表
+        if ("history".equals(scope)) {
+            if (after != null) {
+                throw new BusinessException(400, "scope=history 不支持 after 游标分页");
+            }
+            return Result.success(withNames(pageQueryExecutor.page("borrowHistory", keyword, page, size,
+                borrowMapper::selectHistoryPage, borrowMapper::countHistory,
+                borrowMapper::selectHistoryPageWithTotal, borrowMapper::estimateHistoryCount), view));
+        }
+        // 传入after时使用游标分页，游标为(UserID, BookID)复合主键，after为空串表示第一页
+        if (after != null) {
+            String[] last = after.isEmpty() ? new String[] {null, null} : PageCursor.decode(after, 2);
+            List<Borrow> rows = borrowMapper.selectPageAfter(keyword, last[0], last[1], size + 1);
+            CursorPageResult<Borrow> result = CursorPageResult.of(rows, size,
+                b -> PageCursor.encode(b.getUserid(), b.getBookid()));
+            if (!view) {
+                return Result.success(result);
+            }
+            return Result.success(new CursorPageResult<>(borrowService.toViews(result.getList()),
+                result.getNextCursor(), result.getSize()));
+        }
+        return Result.success(withNames(pageQueryExecutor.page("borrow", keyword, page, size,
+            borrowMapper::selectPage, borrowMapper::countAll, borrowMapper::selectPageWithTotal, borrowMapper::estimateCount), view));
+    }
+
+    // view=true 时把借阅记录换成带用户名和书名的 BorrowView，前端不必再逐行请求用户和图书
+    private PageResult<?> withNames(PageResult<Borrow> page, boolean view) {
+        if (!view) {
+            return page;
+        }
+        List<BorrowView> views = borrowService.toViews(page.getList());
+        return new PageResult<>(views, page.getTotal(), page.getPage(), page.getSize(), page.isApproximate());
     }
 
     @PostMapping
@@ -58,6 +140,126 @@ public class BorrowController {
         }
     }
 
+    // 借书：校验库存并扣减可用册数，请求体只需 userid 与 bookid
+    @PostMapping("/checkout")
+    public Result<Borrow> checkout(@RequestBody Borrow borrow) {
+        if (borrow.getUserid() == null || borrow.getBookid() == null) {
+            throw new BusinessException(400, "用户ID和图书ID不能为空");
+        }
+        return Result.success(borrowService.checkout(borrow.getUserid(), borrow.getBookid()));
+    }
+
+    // 还书：记录归还时间并归还可用册数
+    @PostMapping("/return")
+    public Result<Borrow> returnBook(@RequestBody Borrow borrow) {
+        if (borrow.getUserid() == null || borrow.getBookid() == null) {
+            throw new BusinessException(400, "用户ID和图书ID不能为空");
+        }
+        return Result.success(borrowService.returnBook(borrow.getUserid(), borrow.getBookid()));
+    }
+
+    // 预约：图书全部借出时排队，有书归还时按先后留给排在最前的用户
+    @PostMapping("/holds")
+    public Result<BookHold> placeHold(@RequestBody Borrow borrow) {
+        if (borrow.getUserid() == null || borrow.getBookid() == null) {
+            throw new BusinessException(400, "用户ID和图书ID不能为空");
+        }
+        return Result.success(borrowService.placeHold(borrow.getUserid(), borrow.getBookid()));
+    }
+
+    // 排队位置；状态为 READY 时表示书已留出，需在 expiresat 之前借走
+    @GetMapping("/holds/{userid}/{bookid}")
+    public Result<HoldPosition> getHoldPosition(@PathVariable String userid, @PathVariable String bookid) {
+        return Result.success(holdService.position(userid, bookid));
+    }
+
+    @DeleteMapping("/holds/{userid}/{bookid}")
+    public Result<Void> cancelHold(@PathVariable String userid, @PathVariable String bookid) {
+        borrowService.cancelHold(userid, bookid);
+        return Result.success();
+    }
+
+    // 某个用户的借阅记录，scope 为 hot(当前) / history(已归档) / all(全部)，按借阅时间倒序游标分页
+    @GetMapping("/history/user/{userid}")
+    public Result<CursorPageResult<?>> getUserHistory(
+            @PathVariable String userid,
+            @RequestParam(defaultValue = "all") String scope,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "") String after,
+            @RequestParam(defaultValue = "false") boolean view) {
+        PageSize.check(size);
+        if (!"hot".equals(scope) && !"history".equals(scope) && !"all".equals(scope)) {
+            throw new BusinessException(400, "scope 只能是 hot、history 或 all");
+        }
+        return Result.success(keysetPage(after, size, view,
+            (time, id) -> borrowMapper.selectUserHistory(userid, scope, time, id, size + 1), Borrow::getBookid));
+    }
+
+    // 某个用户当前的借阅记录，即 /history/user/{userid}?scope=hot，游标与之通用
+    @GetMapping("/user/{userid}")
+    public Result<CursorPageResult<?>> getBorrowsByUser(
+            @PathVariable String userid,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "") String after,
+            @RequestParam(defaultValue = "false") boolean view) {
+        return getUserHistory(userid, "hot", size, after, view);
+    }
+
+    // 借过某本书的用户，按图书ID精确匹配，借阅时间倒序游标分页
+    @GetMapping("/book/{bookid}")
+    public Result<CursorPageResult<?>> getBorrowsByBook(
+            @PathVariable String bookid,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "") String after,
+            @RequestParam(defaultValue = "false") boolean view) {
+        PageSize.check(size);
+        return Result.success(keysetPage(after, size, view,
+            (time, id) -> borrowMapper.selectByBook(bookid, time, id, size + 1), Borrow::getUserid));
+    }
+
+    // 游标为(借阅时间毫秒数, 次序列)，借阅时间为空时第一段为空串
+    private CursorPageResult<?> keysetPage(String after, int size, boolean view,
+                                           BiFunction<Date, String, List<Borrow>> query,
+                                           Function<Borrow, String> tiebreak) {
+        Date beforeTime = null;
+        String beforeId = null;
+        if (!after.isEmpty()) {
+            String[] last = PageCursor.decode(after, 2);
+            try {
+                beforeTime = last[0].isEmpty() ? null : new Date(Long.parseLong(last[0]));
+            } catch (NumberFormatException e) {
+                throw new BusinessException(400, "无效的分页游标");
+            }
+            beforeId = last[1];
+        }
+        CursorPageResult<Borrow> page = CursorPageResult.of(query.apply(beforeTime, beforeId), size,
+            b -> PageCursor.encode(b.getBorrowtime() == null ? "" : String.valueOf(b.getBorrowtime().getTime()),
+                tiebreak.apply(b)));
+        if (!view) {
+            return page;
+        }
+        return new CursorPageResult<>(borrowService.toViews(page.getList()), page.getNextCursor(), page.getSize());
+    }
+
+    // 立即执行一次归档，平时由定时任务执行
+    @PostMapping("/archive/run")
+    public Result<ArchiveReport> runArchive() {
+        return Result.success(archiveService.run());
+    }
+
+    // 立即执行一次逾期罚款计算，平时由定时任务每晚执行；当天中断过的计算会从检查点继续
+    @PostMapping("/fines/run")
+    public Result<FineReport> runFines() {
+        return Result.success(fineService.run());
+    }
+
+    // 请求体为JSON数组，Content-Type 为 text/csv 时按带表头的CSV解析
+    @PostMapping("/import")
+    public Result<ImportReport> importBorrows(HttpServletRequest request) throws IOException {
+        boolean csv = request.getContentType() != null && request.getContentType().contains("csv");
+        return Result.success(importService.importBorrows(request.getInputStream(), csv));
+    }
+
     @PutMapping("/{userid}/{bookid}")
     public Result<Borrow> updateBorrowByPrimaryKey(@PathVariable String userid, @PathVariable String bookid, @RequestBody Borrow borrow) {
         if (!userid.equals(borrow.getUserid()) || !bookid.equals(borrow.getBookid())) {
@@ -1,14 +1,32 @@
 package edu.fosu.book.controller;
 
 import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.ExportResponse;
+import edu.fosu.book.common.PageCursor;
+import edu.fosu.book.common.PageSize;
+import edu.fosu.book.common.PageQueryExecutor;
 import edu.fosu.book.common.Result;
+import edu.fosu.book.common.VersionRegistry;
+import edu.fosu.book.common.DepartTree;
 import edu.fosu.book.dao.DepartMapper;
+import edu.fosu.book.dao.UserMapper;
+import edu.fosu.book.dto.CursorPageResult;
+import edu.fosu.book.dto.DepartNode;
+import edu.fosu.book.dto.DepartStats;
+import edu.fosu.book.dto.DepartStatsReport;
 import edu.fosu.book.dto.PageResult;
 import edu.fosu.book.entity.Depart;
+import edu.fosu.book.entity.User;
+import edu.fosu.book.service.ExportService;
 import edu.fosu.book.service.DepartService;
+import edu.fosu.book.service.DepartStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Collections;
 import java.util.List;
 
 @RestController
@@ -21,8 +39,74 @@ public class DepartController {
     @Autowired
     private DepartMapper departMapper;
 
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private DepartStatsService departStatsService;
+
+    @Autowired
+    private PageQueryExecutor pageQueryExecutor;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private VersionRegistry versionRegistry;
+
+    // 部门树直接取内存快照；传入root时只返回以该部门为根的子树
+    @GetMapping("/tree")
+    public Result<List<DepartNode>> getDepartTree(@RequestParam(required = false) String root, WebRequest webRequest) {
+        if (versionRegistry.notModified(webRequest, versionRegistry.tableEtag("depart"))) {
+            return null;
+        }
+        DepartTree tree = departService.getTree();
+        if (root == null || root.isEmpty()) {
+            return Result.success(tree.roots());
+        }
+        DepartNode node = tree.node(root);
+        if (node == null) {
+            throw new BusinessException(404, "部门不存在");
+        }
+        return Result.success(Collections.singletonList(node));
+    }
+
+    // 部门及其全部下级部门的用户，按用户ID游标分页
+    @GetMapping("/{id}/users")
+    public Result<CursorPageResult<User>> getDepartUsers(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "") String after) {
+        PageSize.check(size);
+        if (!departService.getTree().contains(id)) {
+            throw new BusinessException(404, "部门不存在");
+        }
+        String last = after.isEmpty() ? null : PageCursor.decode(after, 1)[0];
+        List<User> rows = userMapper.selectByDepartTree(id, last, size + 1);
+        return Result.success(CursorPageResult.of(rows, size, u -> PageCursor.encode(u.getUserid())));
+    }
+
+    // 本部门及含全部下级部门的在借数、逾期数、欠款，直接读内存计数
+    @GetMapping("/{id}/stats")
+    public Result<DepartStats> getDepartStats(@PathVariable String id) {
+        DepartStats stats = departStatsService.get(id);
+        if (stats == null) {
+            throw new BusinessException(404, "部门不存在");
+        }
+        return Result.success(stats);
+    }
+
+    // 从借阅表并行重新汇总各部门统计，与增量计数比对后替换
+    @PostMapping("/stats/verify")
+    public Result<DepartStatsReport> verifyDepartStats() {
+        return Result.success(departStatsService.verify());
+    }
+
     @GetMapping("/{id}")
-    public Result<Depart> getDepartById(@PathVariable String id) {
+    public Result<Depart> getDepartById(@PathVariable String id, WebRequest webRequest) {
+        if (versionRegistry.notModified(webRequest, versionRegistry.rowEtag("depart", id))) {
+            return null;
+        }
         Depart depart = departService.selectByPrimaryKey(id);
         if (depart != null) {
             return Result.success(depart);
@@ -32,20 +116,35 @@ public class DepartController {
     }
 
     @GetMapping
-    public Result<List<Depart>> getAllDeparts() {
+    public Result<List<Depart>> getAllDeparts(WebRequest webRequest) {
+        if (versionRegistry.notModified(webRequest, versionRegistry.tableEtag("depart"))) {
+            return null;
+        }
         List<Depart> departs = departService.getAllDeparts();
         return Result.success(departs);
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportDeparts(@RequestParam(defaultValue = "ndjson") String format) {
+        return ExportResponse.of("depart", format, out -> exportService.exportDeparts(format, out));
+    }
+
     @GetMapping("/page")
-    public Result<PageResult<Depart>> getDepartPage(
+    public Result<?> getDepartPage(
             @RequestParam(defaultValue = "") String keyword,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        int offset = (page - 1) * size;
-        List<Depart> list = departMapper.selectPage(keyword, offset, size);
-        long total = departMapper.countAll(keyword);
-        return Result.success(new PageResult<>(list, total, page, size));
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) {
+        PageSize.check(size);
+        PageSize.checkPage(page);
+        // 传入after时使用游标分页，after为空串表示第一页
+        if (after != null) {
+            String last = after.isEmpty() ? null : PageCursor.decode(after, 1)[0];
+            List<Depart> rows = departMapper.selectPageAfter(keyword, last, size + 1);
+            return Result.success(CursorPageResult.of(rows, size, d -> PageCursor.encode(d.getDepartid())));
+        }
+        return Result.success(pageQueryExecutor.page("depart", keyword, page, size,
+            departMapper::selectPage, departMapper::countAll, departMapper::selectPageWithTotal, departMapper::estimateCount));
     }
 
     @PostMapping
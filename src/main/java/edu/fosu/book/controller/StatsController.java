@@ -0,0 +1,59 @@
+package edu.fosu.book.controller;
+
+import edu.fosu.book.common.EntityCacheManager;
+import edu.fosu.book.common.PageQueryExecutor;
+import edu.fosu.book.common.Result;
+import edu.fosu.book.service.DeadlineService;
+import edu.fosu.book.service.OutboxService;
+import edu.fosu.book.service.PasswordService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/stats")
+public class StatsController {
+
+    @Autowired
+    private PageQueryExecutor pageQueryExecutor;
+
+    @Autowired
+    private EntityCacheManager entityCacheManager;
+
+    @Autowired
+    private PasswordService passwordService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private DeadlineService deadlineService;
+
+    @GetMapping("/paging")
+    public Result<Map<String, Object>> getPagingStats() {
+        return Result.success(pageQueryExecutor.stats());
+    }
+
+    @GetMapping("/cache")
+    public Result<Map<String, Object>> getCacheStats() {
+        return Result.success(entityCacheManager.stats());
+    }
+
+    @GetMapping("/password")
+    public Result<Map<String, Object>> getPasswordStats() {
+        return Result.success(passwordService.stats());
+    }
+
+    @GetMapping("/outbox")
+    public Result<Map<String, Object>> getOutboxStats() {
+        return Result.success(outboxService.stats());
+    }
+
+    @GetMapping("/deadlines")
+    public Result<Map<String, Object>> getDeadlineStats() {
+        return Result.success(deadlineService.stats());
+    }
+}
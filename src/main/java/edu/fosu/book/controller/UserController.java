@@ -1,14 +1,25 @@
 package edu.fosu.book.controller;
 
 import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.ExportResponse;
+import edu.fosu.book.common.PageCursor;
+import edu.fosu.book.common.PageSize;
+import edu.fosu.book.common.PageQueryExecutor;
 import edu.fosu.book.common.Result;
 import edu.fosu.book.dao.UserMapper;
+import edu.fosu.book.dto.CursorPageResult;
+import edu.fosu.book.dto.LoanSummary;
 import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.dto.RepairReport;
 import edu.fosu.book.entity.User;
+import edu.fosu.book.service.ExportService;
+import edu.fosu.book.service.LoanSummaryService;
+import edu.fosu.book.service.PasswordService;
 import edu.fosu.book.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -22,7 +33,17 @@ public class UserController {
     @Autowired
     private UserMapper userMapper;
 
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private PageQueryExecutor pageQueryExecutor;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private PasswordService passwordService;
+
+    @Autowired
+    private LoanSummaryService loanSummaryService;
 
     @GetMapping("/{id}")
     public Result<User> getUserById(@PathVariable String id) {
@@ -36,6 +57,21 @@ public class UserController {
         }
     }
 
+    // 在借数、逾期数、欠款，直接读内存中的汇总
+    @GetMapping("/{id}/summary")
+    public Result<LoanSummary> getLoanSummary(@PathVariable String id) {
+        if (userService.selectByPrimaryKey(id) == null) {
+            throw new BusinessException(404, "用户不存在");
+        }
+        return Result.success(loanSummaryService.get(id));
+    }
+
+    // 从借阅表并行重建全部用户的借阅汇总
+    @PostMapping("/summary/repair")
+    public Result<RepairReport> repairLoanSummary() {
+        return Result.success(loanSummaryService.repair());
+    }
+
     @GetMapping
     public Result<List<User>> getAllUsers() {
         List<User> users = userService.getAllUsers();
@@ -44,24 +80,39 @@ public class UserController {
         return Result.success(users);
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "ndjson") String format) {
+        return ExportResponse.of("user", format, out -> exportService.exportUsers(format, out));
+    }
+
     @GetMapping("/page")
-    public Result<PageResult<User>> getUserPage(
+    public Result<?> getUserPage(
             @RequestParam(defaultValue = "") String keyword,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        int offset = (page - 1) * size;
-        List<User> list = userMapper.selectPage(keyword, offset, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) {
+        PageSize.check(size);
+        PageSize.checkPage(page);
+        // 传入after时使用游标分页，after为空串表示第一页
+        if (after != null) {
+            String last = after.isEmpty() ? null : PageCursor.decode(after, 1)[0];
+            List<User> rows = userMapper.selectPageAfter(keyword, last, size + 1);
+            // 不返回密码
+            rows.forEach(u -> u.setPassword(null));
+            return Result.success(CursorPageResult.of(rows, size, u -> PageCursor.encode(u.getUserid())));
+        }
+        PageResult<User> result = pageQueryExecutor.page("user", keyword, page, size,
+            userMapper::selectPage, userMapper::countAll, userMapper::selectPageWithTotal, userMapper::estimateCount);
         // 不返回密码
-        list.forEach(u -> u.setPassword(null));
-        long total = userMapper.countAll(keyword);
-        return Result.success(new PageResult<>(list, total, page, size));
+        result.getList().forEach(u -> u.setPassword(null));
+        return Result.success(result);
     }
 
     @PostMapping
     public Result<User> insertUser(@RequestBody User user) {
         // 加密密码
         if (user.getPassword() != null && !user.getPassword().isEmpty()) {
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
+            user.setPassword(passwordService.encode(user.getPassword()));
         }
         // 默认角色为普通用户
         if (user.getRole() == null || user.getRole().isEmpty()) {
@@ -96,7 +147,7 @@ public class UserController {
             user.setPassword(existingUser.getPassword());
         } else {
             // 加密新密码
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
+            user.setPassword(passwordService.encode(user.getPassword()));
         }
         // 空字符串转为null，避免外键约束错误
         if (user.getDepartid() != null && user.getDepartid().isEmpty()) {
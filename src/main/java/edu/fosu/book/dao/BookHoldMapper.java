@@ -0,0 +1,30 @@
+package edu.fosu.book.dao;
+
+import edu.fosu.book.entity.BookHold;
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface BookHoldMapper {
+    int insert(BookHold record);
+
+    List<BookHold> selectActive();
+
+    BookHold selectWaitingHead(@Param("bookid") String bookid);
+
+    BookHold selectActiveByUser(@Param("userid") String userid, @Param("bookid") String bookid);
+
+    int countWaiting(@Param("bookid") String bookid, @Param("before") Long before);
+
+    List<BookHold> selectExpired(@Param("now") Date now, @Param("limit") int limit);
+
+    int markReady(@Param("holdid") Long holdid, @Param("readyat") Date readyat, @Param("expiresat") Date expiresat);
+
+    int fulfill(@Param("holdid") Long holdid);
+
+    int cancel(@Param("holdid") Long holdid);
+
+    int expire(@Param("holdid") Long holdid);
+}
@@ -1,9 +1,12 @@
 package edu.fosu.book.dao;
 
+import edu.fosu.book.dto.PageRow;
 import edu.fosu.book.entity.Book;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -14,11 +17,23 @@ public interface BookMapper {
 
     Book selectByPrimaryKey(String bookid);
 
+    List<Book> selectByIds(@Param("ids") Collection<String> ids);
+
     List<Book> selectAll();
 
+    Cursor<Book> selectAllCursor();
+
     int updateByPrimaryKey(Book record);
 
     List<Book> selectPage(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
 
+    List<PageRow<Book>> selectPageWithTotal(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
+
+    List<Book> selectPageAfter(@Param("keyword") String keyword, @Param("after") String after, @Param("size") int size);
+
     long countAll(@Param("keyword") String keyword);
+
+    List<String> selectIdsByKeyword(@Param("keyword") String keyword);
+
+    long estimateCount();
 }
\ No newline at end of file
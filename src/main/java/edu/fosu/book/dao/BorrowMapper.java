@@ -1,9 +1,15 @@
 package edu.fosu.book.dao;
 
+import edu.fosu.book.dto.BookBorrowCount;
+import edu.fosu.book.dto.IdName;
+import edu.fosu.book.dto.PageRow;
 import edu.fosu.book.entity.Borrow;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 @Mapper
 public interface BorrowMapper {
@@ -13,11 +19,56 @@ public interface BorrowMapper {
 
     Borrow selectByPrimaryKey(@Param("userid") String userid, @Param("bookid") String bookid);
 
+    Borrow selectForUpdate(@Param("userid") String userid, @Param("bookid") String bookid);
+
     List<Borrow> selectAll();
 
+    Cursor<Borrow> selectAllCursor();
+
+    Cursor<Borrow> selectOpenCursor();
+
+    List<Borrow> selectByBook(@Param("bookid") String bookid, @Param("beforeTime") Date beforeTime,
+                              @Param("beforeId") String beforeId, @Param("size") int size);
+
+    List<IdName> selectNames(@Param("userids") Collection<String> userids, @Param("bookids") Collection<String> bookids);
+
     int updateByPrimaryKey(Borrow record);
 
+    int reopen(Borrow record);
+
+    int markReturned(@Param("userid") String userid, @Param("bookid") String bookid, @Param("returntime") Date returntime);
+
     List<Borrow> selectPage(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
 
+    List<PageRow<Borrow>> selectPageWithTotal(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
+
+    List<Borrow> selectPageAfter(@Param("keyword") String keyword, @Param("afterUserid") String afterUserid,
+                                 @Param("afterBookid") String afterBookid, @Param("size") int size);
+
     long countAll(@Param("keyword") String keyword);
+
+    long estimateCount();
+
+    List<BookBorrowCount> countByBook();
+
+    List<Borrow> selectArchivable(@Param("before") Date before, @Param("afterUserid") String afterUserid,
+                                  @Param("afterBookid") String afterBookid, @Param("size") int size);
+
+    int insertHistory(@Param("keys") List<Borrow> keys, @Param("before") Date before);
+
+    int deleteArchived(@Param("keys") List<Borrow> keys, @Param("before") Date before);
+
+    int archiveReturned(@Param("userid") String userid, @Param("bookid") String bookid);
+
+    List<Borrow> selectHistoryPage(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
+
+    List<PageRow<Borrow>> selectHistoryPageWithTotal(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
+
+    long countHistory(@Param("keyword") String keyword);
+
+    long estimateHistoryCount();
+
+    List<Borrow> selectUserHistory(@Param("userid") String userid, @Param("scope") String scope,
+                                   @Param("beforeTime") Date beforeTime, @Param("beforeId") String beforeId,
+                                   @Param("size") int size);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package edu.fosu.book.dao;
+
+import edu.fosu.book.entity.BorrowEvent;
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface BorrowOutboxMapper {
+    int insert(BorrowEvent record);
+
+    List<BorrowEvent> selectBatch(@Param("size") int size);
+
+    List<BorrowEvent> selectAfter(@Param("after") long after, @Param("size") int size);
+
+    List<BorrowEvent> selectByIds(@Param("ids") Collection<Long> ids);
+
+    long selectMaxEventId();
+
+    int claim(@Param("ids") List<Long> ids, @Param("owner") String owner, @Param("leaseSeconds") int leaseSeconds);
+
+    int release(@Param("ids") List<Long> ids, @Param("owner") String owner);
+
+    List<BorrowEvent> selectFirstPending(@Param("userids") Collection<String> userids);
+
+    int markDelivered(@Param("ids") List<Long> ids);
+
+    int deleteUpTo(@Param("maxEventId") long maxEventId, @Param("requireDelivered") boolean requireDelivered, @Param("size") int size);
+
+    int incrementAttempts(@Param("ids") List<Long> ids, @Param("owner") String owner);
+
+    long countPending();
+}
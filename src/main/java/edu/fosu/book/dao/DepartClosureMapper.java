@@ -0,0 +1,15 @@
+package edu.fosu.book.dao;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface DepartClosureMapper {
+    int insertNode(@Param("departid") String departid, @Param("parentid") String parentid);
+
+    Integer selectPathForUpdate(@Param("ancestor") String ancestor, @Param("descendant") String descendant);
+
+    int detachSubtree(@Param("departid") String departid);
+
+    int attachSubtree(@Param("departid") String departid, @Param("parentid") String parentid);
+}
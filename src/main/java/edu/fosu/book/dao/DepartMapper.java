@@ -1,8 +1,10 @@
 package edu.fosu.book.dao;
 
+import edu.fosu.book.dto.PageRow;
 import edu.fosu.book.entity.Depart;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 import java.util.List;
 
 @Mapper
@@ -15,9 +17,17 @@ public interface DepartMapper {
 
     List<Depart> selectAll();
 
+    Cursor<Depart> selectAllCursor();
+
     int updateByPrimaryKey(Depart record);
 
     List<Depart> selectPage(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
 
+    List<PageRow<Depart>> selectPageWithTotal(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
+
+    List<Depart> selectPageAfter(@Param("keyword") String keyword, @Param("after") String after, @Param("size") int size);
+
     long countAll(@Param("keyword") String keyword);
+
+    long estimateCount();
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package edu.fosu.book.dao;
+
+import edu.fosu.book.dto.DepartCount;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface DepartStatsMapper {
+    List<DepartCount> sumSummaryByDepart();
+
+    List<DepartCount> aggregateRange(@Param("low") String low, @Param("high") String high);
+}
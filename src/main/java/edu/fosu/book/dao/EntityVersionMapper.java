@@ -0,0 +1,22 @@
+package edu.fosu.book.dao;
+
+import edu.fosu.book.entity.EntityVersion;
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface EntityVersionMapper {
+    int bumpTable(@Param("table") String table);
+
+    long selectTableVersion(@Param("table") String table);
+
+    int bumpStripes(@Param("table") String table, @Param("stripes") Collection<Integer> stripes, @Param("version") long version);
+
+    int recordChanges(@Param("table") String table, @Param("ids") Collection<String> ids, @Param("version") long version);
+
+    List<String> selectChangedIds(@Param("table") String table, @Param("after") long after, @Param("upTo") long upTo);
+
+    List<EntityVersion> selectChanged(@Param("table") String table, @Param("after") long after);
+}
@@ -0,0 +1,30 @@
+package edu.fosu.book.dao;
+
+import edu.fosu.book.dto.FineRow;
+import edu.fosu.book.entity.FineCheckpoint;
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+@Mapper
+public interface FineMapper {
+    Cursor<FineRow> selectOverdueCursor(@Param("checkpoint") FineCheckpoint checkpoint, @Param("loanDays") int loanDays);
+
+    int updatePenalty(@Param("userid") String userid, @Param("bookid") String bookid, @Param("cents") long cents,
+                      @Param("previous") Long previous, @Param("returntime") Date returntime);
+
+    List<FineCheckpoint> selectCheckpoints(@Param("rundate") Date rundate);
+
+    FineCheckpoint selectCheckpoint(@Param("rundate") Date rundate, @Param("partitionno") int partitionno);
+
+    int claimCheckpoint(@Param("rundate") Date rundate, @Param("partitionno") int partitionno,
+                        @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    int insertCheckpoint(FineCheckpoint record);
+
+    int updateCheckpoint(@Param("checkpoint") FineCheckpoint checkpoint, @Param("leaseSeconds") long leaseSeconds);
+
+    int deleteCheckpointsBefore(@Param("rundate") Date rundate);
+}
@@ -0,0 +1,20 @@
+package edu.fosu.book.dao;
+
+import edu.fosu.book.entity.Inventory;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface InventoryMapper {
+    Inventory selectByPrimaryKey(String bookid);
+
+    int insertIfAbsent(@Param("bookid") String bookid, @Param("copies") int copies);
+
+    int checkout(@Param("bookid") String bookid, @Param("version") int version);
+
+    int checkin(@Param("bookid") String bookid, @Param("version") int version);
+
+    int takeCopies(@Param("bookid") String bookid, @Param("count") int count);
+
+    int updateTotal(@Param("bookid") String bookid, @Param("total") int total, @Param("version") int version);
+}
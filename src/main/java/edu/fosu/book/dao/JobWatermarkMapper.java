@@ -0,0 +1,16 @@
+package edu.fosu.book.dao;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface JobWatermarkMapper {
+    Long selectWatermark(@Param("name") String name);
+
+    int upsert(@Param("name") String name, @Param("watermark") long watermark);
+
+    int claimLease(@Param("name") String name, @Param("owner") String owner, @Param("leaseSeconds") int leaseSeconds);
+
+    int advance(@Param("name") String name, @Param("owner") String owner,
+                @Param("watermark") long watermark, @Param("leaseSeconds") int leaseSeconds);
+}
@@ -0,0 +1,13 @@
+package edu.fosu.book.dao;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface OutboxReaderMapper {
+    int upsert(@Param("instance") String instance, @Param("lastEventId") long lastEventId);
+
+    int deleteStale(@Param("timeoutSeconds") int timeoutSeconds);
+
+    Long selectMinEventId();
+}
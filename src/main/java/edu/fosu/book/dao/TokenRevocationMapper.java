@@ -0,0 +1,15 @@
+package edu.fosu.book.dao;
+
+import edu.fosu.book.entity.TokenRevocation;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface TokenRevocationMapper {
+    int insert(@Param("tokenid") String tokenid, @Param("expiresat") long expiresat);
+
+    List<TokenRevocation> selectSince(@Param("after") long after, @Param("now") long now, @Param("limit") int limit);
+
+    int deleteExpired(@Param("now") long now, @Param("limit") int limit);
+}
@@ -0,0 +1,31 @@
+package edu.fosu.book.dao;
+
+import edu.fosu.book.entity.UserLoanSummary;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface UserLoanSummaryMapper {
+    int upsertDelta(@Param("userid") String userid, @Param("active") long active,
+                    @Param("overdue") long overdue, @Param("cents") long cents);
+
+    List<UserLoanSummary> selectAll();
+
+    List<UserLoanSummary> selectByUserids(@Param("userids") Collection<String> userids);
+
+    UserLoanSummary selectByPrimaryKey(@Param("userid") String userid);
+
+    List<UserLoanSummary> selectChangedSince(@Param("since") Date since, @Param("afterUser") String afterUser,
+                                             @Param("limit") int limit);
+
+    List<UserLoanSummary> selectRange(@Param("low") String low, @Param("high") String high);
+
+    List<UserLoanSummary> aggregateRange(@Param("low") String low, @Param("high") String high);
+
+    int deleteRange(@Param("low") String low, @Param("high") String high);
+
+    int insert(UserLoanSummary record);
+}
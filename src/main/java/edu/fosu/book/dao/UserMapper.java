@@ -1,8 +1,11 @@
 package edu.fosu.book.dao;
 
+import edu.fosu.book.dto.PageRow;
 import edu.fosu.book.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -15,11 +18,29 @@ public interface UserMapper {
 
     List<User> selectAll();
 
+    Cursor<User> selectAllForExport();
+
     int updateByPrimaryKey(User record);
 
     User selectByUsername(String username);
 
+    List<String> selectAllUsernames();
+
     List<User> selectPage(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
 
+    List<PageRow<User>> selectPageWithTotal(@Param("keyword") String keyword, @Param("offset") int offset, @Param("size") int size);
+
+    List<User> selectPageAfter(@Param("keyword") String keyword, @Param("after") String after, @Param("size") int size);
+
     long countAll(@Param("keyword") String keyword);
+
+    long estimateCount();
+
+    String selectIdAt(@Param("offset") long offset);
+
+    List<User> selectDepartAssignments();
+
+    List<User> selectDepartsByIds(@Param("ids") Collection<String> ids);
+
+    List<User> selectByDepartTree(@Param("departid") String departid, @Param("after") String after, @Param("size") int size);
 }
\ No newline at end of file
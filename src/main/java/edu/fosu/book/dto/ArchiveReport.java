@@ -0,0 +1,31 @@
+package edu.fosu.book.dto;
+
+public class ArchiveReport {
+    private long moved;
+    private int batches;
+    private long millis;
+
+    public long getMoved() {
+        return moved;
+    }
+
+    public void setMoved(long moved) {
+        this.moved = moved;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+}
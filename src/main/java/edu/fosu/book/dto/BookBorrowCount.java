@@ -0,0 +1,22 @@
+package edu.fosu.book.dto;
+
+public class BookBorrowCount {
+    private String bookid;
+    private int count;
+
+    public String getBookid() {
+        return bookid;
+    }
+
+    public void setBookid(String bookid) {
+        this.bookid = bookid;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
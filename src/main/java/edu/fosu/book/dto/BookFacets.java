@@ -0,0 +1,56 @@
+package edu.fosu.book.dto;
+
+import edu.fosu.book.entity.Book;
+
+import java.util.List;
+
+public class BookFacets {
+    private PageResult<Book> page;
+    // 按出版社，数量降序
+    private List<FacetCount> publication;
+    // 按出版年份，年份降序
+    private List<FacetCount> year;
+    // 按价格区间，区间升序
+    private List<FacetCount> price;
+
+    public BookFacets() {}
+
+    public BookFacets(PageResult<Book> page, List<FacetCount> publication, List<FacetCount> year, List<FacetCount> price) {
+        this.page = page;
+        this.publication = publication;
+        this.year = year;
+        this.price = price;
+    }
+
+    public PageResult<Book> getPage() {
+        return page;
+    }
+
+    public void setPage(PageResult<Book> page) {
+        this.page = page;
+    }
+
+    public List<FacetCount> getPublication() {
+        return publication;
+    }
+
+    public void setPublication(List<FacetCount> publication) {
+        this.publication = publication;
+    }
+
+    public List<FacetCount> getYear() {
+        return year;
+    }
+
+    public void setYear(List<FacetCount> year) {
+        this.year = year;
+    }
+
+    public List<FacetCount> getPrice() {
+        return price;
+    }
+
+    public void setPrice(List<FacetCount> price) {
+        this.price = price;
+    }
+}
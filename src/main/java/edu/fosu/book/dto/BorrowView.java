@@ -0,0 +1,82 @@
+package edu.fosu.book.dto;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 借阅记录连同用户名和书名，列表页一次取全，不必再逐行查询用户和图书。
+ */
+public class BorrowView {
+    private String userid;
+    private String username;
+    private String bookid;
+    private String bookname;
+    private Date borrowtime;
+    private Date returntime;
+    private BigDecimal penalsum;
+    private BigDecimal payment;
+
+    public String getUserid() {
+        return userid;
+    }
+
+    public void setUserid(String userid) {
+        this.userid = userid;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getBookid() {
+        return bookid;
+    }
+
+    public void setBookid(String bookid) {
+        this.bookid = bookid;
+    }
+
+    public String getBookname() {
+        return bookname;
+    }
+
+    public void setBookname(String bookname) {
+        this.bookname = bookname;
+    }
+
+    public Date getBorrowtime() {
+        return borrowtime;
+    }
+
+    public void setBorrowtime(Date borrowtime) {
+        this.borrowtime = borrowtime;
+    }
+
+    public Date getReturntime() {
+        return returntime;
+    }
+
+    public void setReturntime(Date returntime) {
+        this.returntime = returntime;
+    }
+
+    public BigDecimal getPenalsum() {
+        return penalsum;
+    }
+
+    public void setPenalsum(BigDecimal penalsum) {
+        this.penalsum = penalsum;
+    }
+
+    public BigDecimal getPayment() {
+        return payment;
+    }
+
+    public void setPayment(BigDecimal payment) {
+        this.payment = payment;
+    }
+}
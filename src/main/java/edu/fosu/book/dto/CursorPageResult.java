@@ -0,0 +1,55 @@
+package edu.fosu.book.dto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+public class CursorPageResult<T> {
+    private List<T> list;
+    private String nextCursor;
+    private int size;
+
+    public CursorPageResult() {}
+
+    public CursorPageResult(List<T> list, String nextCursor, int size) {
+        this.list = list;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    // rows 按 size + 1 查询，多出的一行只用来判断是否还有下一页
+    public static <T> CursorPageResult<T> of(List<T> rows, int size, Function<T, String> cursorOf) {
+        if (size <= 0) {
+            return new CursorPageResult<>(Collections.emptyList(), null, size);
+        }
+        if (rows.size() > size) {
+            List<T> list = rows.subList(0, size);
+            return new CursorPageResult<>(list, cursorOf.apply(list.get(size - 1)), size);
+        }
+        return new CursorPageResult<>(rows, null, size);
+    }
+
+    public List<T> getList() {
+        return list;
+    }
+
+    public void setList(List<T> list) {
+        this.list = list;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,41 @@
+package edu.fosu.book.dto;
+
+// 按部门汇总的借阅计数，欠款单位为分
+public class DepartCount {
+    private String departid;
+    private long activecount;
+    private long overduecount;
+    private long outstandingcents;
+
+    public String getDepartid() {
+        return departid;
+    }
+
+    public void setDepartid(String departid) {
+        this.departid = departid;
+    }
+
+    public long getActivecount() {
+        return activecount;
+    }
+
+    public void setActivecount(long activecount) {
+        this.activecount = activecount;
+    }
+
+    public long getOverduecount() {
+        return overduecount;
+    }
+
+    public void setOverduecount(long overduecount) {
+        this.overduecount = overduecount;
+    }
+
+    public long getOutstandingcents() {
+        return outstandingcents;
+    }
+
+    public void setOutstandingcents(long outstandingcents) {
+        this.outstandingcents = outstandingcents;
+    }
+}
@@ -0,0 +1,34 @@
+package edu.fosu.book.dto;
+
+import java.util.List;
+
+// 部门树节点，由部门树快照一次建好，之后只读
+public class DepartNode {
+    private final String departid;
+    private final String departname;
+    private final int depth;
+    private final List<DepartNode> children;
+
+    public DepartNode(String departid, String departname, int depth, List<DepartNode> children) {
+        this.departid = departid;
+        this.departname = departname;
+        this.depth = depth;
+        this.children = children;
+    }
+
+    public String getDepartid() {
+        return departid;
+    }
+
+    public String getDepartname() {
+        return departname;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public List<DepartNode> getChildren() {
+        return children;
+    }
+}
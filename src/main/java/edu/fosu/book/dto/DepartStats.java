@@ -0,0 +1,94 @@
+package edu.fosu.book.dto;
+
+import java.math.BigDecimal;
+
+public class DepartStats {
+    private String departid;
+    private String departname;
+    // 本部门用户的在借数、逾期数、欠款
+    private long activeCount;
+    private long overdueCount;
+    private BigDecimal outstanding;
+    // 含全部下级部门的合计
+    private long subtreeActiveCount;
+    private long subtreeOverdueCount;
+    private BigDecimal subtreeOutstanding;
+
+    public DepartStats() {}
+
+    public DepartStats(String departid, String departname, long activeCount, long overdueCount, BigDecimal outstanding,
+                       long subtreeActiveCount, long subtreeOverdueCount, BigDecimal subtreeOutstanding) {
+        this.departid = departid;
+        this.departname = departname;
+        this.activeCount = activeCount;
+        this.overdueCount = overdueCount;
+        this.outstanding = outstanding;
+        this.subtreeActiveCount = subtreeActiveCount;
+        this.subtreeOverdueCount = subtreeOverdueCount;
+        this.subtreeOutstanding = subtreeOutstanding;
+    }
+
+    public String getDepartid() {
+        return departid;
+    }
+
+    public void setDepartid(String departid) {
+        this.departid = departid;
+    }
+
+    public String getDepartname() {
+        return departname;
+    }
+
+    public void setDepartname(String departname) {
+        this.departname = departname;
+    }
+
+    public long getActiveCount() {
+        return activeCount;
+    }
+
+    public void setActiveCount(long activeCount) {
+        this.activeCount = activeCount;
+    }
+
+    public long getOverdueCount() {
+        return overdueCount;
+    }
+
+    public void setOverdueCount(long overdueCount) {
+        this.overdueCount = overdueCount;
+    }
+
+    public BigDecimal getOutstanding() {
+        return outstanding;
+    }
+
+    public void setOutstanding(BigDecimal outstanding) {
+        this.outstanding = outstanding;
+    }
+
+    public long getSubtreeActiveCount() {
+        return subtreeActiveCount;
+    }
+
+    public void setSubtreeActiveCount(long subtreeActiveCount) {
+        this.subtreeActiveCount = subtreeActiveCount;
+    }
+
+    public long getSubtreeOverdueCount() {
+        return subtreeOverdueCount;
+    }
+
+    public void setSubtreeOverdueCount(long subtreeOverdueCount) {
+        this.subtreeOverdueCount = subtreeOverdueCount;
+    }
+
+    public BigDecimal getSubtreeOutstanding() {
+        return subtreeOutstanding;
+    }
+
+    public void setSubtreeOutstanding(BigDecimal subtreeOutstanding) {
+        this.subtreeOutstanding = subtreeOutstanding;
+    }
+}
@@ -0,0 +1,51 @@
+package edu.fosu.book.dto;
+
+public class DepartStatsReport {
+    private int partitions;
+    private int departs;
+    // 增量计数与重新汇总结果不一致的部门数
+    private int mismatched;
+    // 校验期间计数有变化时不替换，需要重新校验
+    private boolean applied;
+    private long millis;
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    public int getDeparts() {
+        return departs;
+    }
+
+    public void setDeparts(int departs) {
+        this.departs = departs;
+    }
+
+    public int getMismatched() {
+        return mismatched;
+    }
+
+    public void setMismatched(int mismatched) {
+        this.mismatched = mismatched;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+}
@@ -0,0 +1,71 @@
+package edu.fosu.book.dto;
+
+import java.time.LocalDate;
+
+public class FineReport {
+    private LocalDate runDate;
+    private int partitions;
+    // 本次启动前已完成、直接跳过的分区数
+    private int resumed;
+    // 正由其他实例处理、本次没有认领到的分区数
+    private int skipped;
+    private long scanned;
+    private long updated;
+    private long millis;
+
+    public LocalDate getRunDate() {
+        return runDate;
+    }
+
+    public void setRunDate(LocalDate runDate) {
+        this.runDate = runDate;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    public int getResumed() {
+        return resumed;
+    }
+
+    public void setResumed(int resumed) {
+        this.resumed = resumed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(int skipped) {
+        this.skipped = skipped;
+    }
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    public void setScanned(long scanned) {
+        this.scanned = scanned;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+}
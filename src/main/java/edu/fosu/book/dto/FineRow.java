@@ -0,0 +1,73 @@
+package edu.fosu.book.dto;
+
+import java.util.Date;
+
+// 罚款计算读取的借阅行：日期换算为天数、罚款换算为分，计算过程不创建 BigDecimal
+public class FineRow {
+    private String userid;
+    private String bookid;
+    private int borrowDay;
+    // 未归还时为null
+    private Integer returnDay;
+    // 原始归还时间，写回时作为条件，读出后被修改过的行不覆盖
+    private Date returnTime;
+    // 尚未计算过罚款时为null
+    private Long penalCents;
+    private long payCents;
+
+    public String getUserid() {
+        return userid;
+    }
+
+    public void setUserid(String userid) {
+        this.userid = userid == null ? null : userid.trim();
+    }
+
+    public String getBookid() {
+        return bookid;
+    }
+
+    public void setBookid(String bookid) {
+        this.bookid = bookid == null ? null : bookid.trim();
+    }
+
+    public int getBorrowDay() {
+        return borrowDay;
+    }
+
+    public void setBorrowDay(int borrowDay) {
+        this.borrowDay = borrowDay;
+    }
+
+    public Integer getReturnDay() {
+        return returnDay;
+    }
+
+    public void setReturnDay(Integer returnDay) {
+        this.returnDay = returnDay;
+    }
+
+    public Date getReturnTime() {
+        return returnTime;
+    }
+
+    public void setReturnTime(Date returnTime) {
+        this.returnTime = returnTime;
+    }
+
+    public Long getPenalCents() {
+        return penalCents;
+    }
+
+    public void setPenalCents(Long penalCents) {
+        this.penalCents = penalCents;
+    }
+
+    public long getPayCents() {
+        return payCents;
+    }
+
+    public void setPayCents(long payCents) {
+        this.payCents = payCents;
+    }
+}
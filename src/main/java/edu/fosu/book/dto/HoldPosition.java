@@ -0,0 +1,73 @@
+package edu.fosu.book.dto;
+
+import java.util.Date;
+
+public class HoldPosition {
+    private String bookid;
+    private String userid;
+    private String status;
+    // 排在第几位，1 表示下一个拿到书；READY 时为0
+    private int position;
+    private int queueLength;
+    // READY 状态的保留截止时间
+    private Date expiresat;
+
+    public HoldPosition() {}
+
+    public HoldPosition(String bookid, String userid, String status, int position, int queueLength, Date expiresat) {
+        this.bookid = bookid;
+        this.userid = userid;
+        this.status = status;
+        this.position = position;
+        this.queueLength = queueLength;
+        this.expiresat = expiresat;
+    }
+
+    public String getBookid() {
+        return bookid;
+    }
+
+    public void setBookid(String bookid) {
+        this.bookid = bookid;
+    }
+
+    public String getUserid() {
+        return userid;
+    }
+
+    public void setUserid(String userid) {
+        this.userid = userid;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public int getQueueLength() {
+        return queueLength;
+    }
+
+    public void setQueueLength(int queueLength) {
+        this.queueLength = queueLength;
+    }
+
+    public Date getExpiresat() {
+        return expiresat;
+    }
+
+    public void setExpiresat(Date expiresat) {
+        this.expiresat = expiresat;
+    }
+}
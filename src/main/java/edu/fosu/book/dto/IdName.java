@@ -0,0 +1,32 @@
+package edu.fosu.book.dto;
+
+// 按ID批量取名称的结果行，kind 区分来源表：U 用户，B 图书
+public class IdName {
+    private String kind;
+    private String id;
+    private String name;
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
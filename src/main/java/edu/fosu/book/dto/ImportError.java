@@ -0,0 +1,29 @@
+package edu.fosu.book.dto;
+
+public class ImportError {
+    private long row;
+    private String message;
+
+    public ImportError() {}
+
+    public ImportError(long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.fosu.book.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportReport {
+    // 错误明细最多保留的条数，超出部分只计数
+    private static final int MAX_ERRORS = 1000;
+
+    private long total;
+    private long succeeded;
+    private long failed;
+    private List<ImportError> errors = new ArrayList<>();
+
+    public void addError(long row, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new ImportError(row, message));
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(long succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ImportError> errors) {
+        this.errors = errors;
+    }
+}
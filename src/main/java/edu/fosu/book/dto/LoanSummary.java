@@ -0,0 +1,54 @@
+package edu.fosu.book.dto;
+
+import java.math.BigDecimal;
+
+public class LoanSummary {
+    private String userid;
+    // 未归还的借阅数
+    private int activeCount;
+    // 未归还且已产生罚款的借阅数
+    private int overdueCount;
+    // 罚款合计减已缴合计
+    private BigDecimal outstanding;
+
+    public LoanSummary() {}
+
+    public LoanSummary(String userid, int activeCount, int overdueCount, BigDecimal outstanding) {
+        this.userid = userid;
+        this.activeCount = activeCount;
+        this.overdueCount = overdueCount;
+        this.outstanding = outstanding;
+    }
+
+    public String getUserid() {
+        return userid;
+    }
+
+    public void setUserid(String userid) {
+        this.userid = userid;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public void setActiveCount(int activeCount) {
+        this.activeCount = activeCount;
+    }
+
+    public int getOverdueCount() {
+        return overdueCount;
+    }
+
+    public void setOverdueCount(int overdueCount) {
+        this.overdueCount = overdueCount;
+    }
+
+    public BigDecimal getOutstanding() {
+        return outstanding;
+    }
+
+    public void setOutstanding(BigDecimal outstanding) {
+        this.outstanding = outstanding;
+    }
+}
@@ -7,6 +7,8 @@ public class PageResult<T> {
     private long total;
     private int page;
     private int size;
+    // total 来自表统计信息的估算值时为 true
+    private boolean approximate;
 
     public PageResult() {}
 
@@ -17,6 +19,11 @@ public class PageResult<T> {
         this.size = size;
     }
 
+    public PageResult(List<T> list, long total, int page, int size, boolean approximate) {
+        this(list, total, page, size);
+        this.approximate = approximate;
+    }
+
     public List<T> getList() {
         return list;
     }
@@ -48,4 +55,12 @@ public class PageResult<T> {
     public void setSize(int size) {
         this.size = size;
     }
+
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+    }
 }
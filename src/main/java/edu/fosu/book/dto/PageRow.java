@@ -0,0 +1,32 @@
+package edu.fosu.book.dto;
+
+// 单语句分页查询的一行：数据行加上 COUNT(*) OVER() 得到的总数
+public class PageRow<T> {
+    private String key;
+    private T row;
+    private long total;
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public T getRow() {
+        return row;
+    }
+
+    public void setRow(T row) {
+        this.row = row;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,40 @@
+package edu.fosu.book.dto;
+
+public class Suggestion {
+    private String text;
+    // title / author / publisher
+    private String type;
+    private int score;
+
+    public Suggestion() {}
+
+    public Suggestion(String text, String type, int score) {
+        this.text = text;
+        this.type = type;
+        this.score = score;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+}
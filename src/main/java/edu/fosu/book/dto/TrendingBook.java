@@ -0,0 +1,50 @@
+package edu.fosu.book.dto;
+
+public class TrendingBook {
+    private String bookid;
+    private String bookname;
+    // 估计的借阅次数，可能偏高，偏高部分不超过 error
+    private long count;
+    private long error;
+
+    public TrendingBook() {}
+
+    public TrendingBook(String bookid, String bookname, long count, long error) {
+        this.bookid = bookid;
+        this.bookname = bookname;
+        this.count = count;
+        this.error = error;
+    }
+
+    public String getBookid() {
+        return bookid;
+    }
+
+    public void setBookid(String bookid) {
+        this.bookid = bookid;
+    }
+
+    public String getBookname() {
+        return bookname;
+    }
+
+    public void setBookname(String bookname) {
+        this.bookname = bookname;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getError() {
+        return error;
+    }
+
+    public void setError(long error) {
+        this.error = error;
+    }
+}
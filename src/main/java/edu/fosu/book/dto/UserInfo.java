@@ -1,10 +1,15 @@
 package edu.fosu.book.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class UserInfo {
     private String userid;
     private String username;
     private String role;
     private String departid;
+    // 令牌模式下登录返回的签名令牌，会话模式下不输出
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String token;
 
     public UserInfo() {}
 
@@ -46,4 +51,12 @@ public class UserInfo {
     public void setDepartid(String departid) {
         this.departid = departid;
     }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
 }
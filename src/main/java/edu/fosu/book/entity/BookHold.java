@@ -0,0 +1,81 @@
+package edu.fosu.book.entity;
+
+import java.util.Date;
+
+public class BookHold {
+    public static final String WAITING = "WAITING";
+    public static final String READY = "READY";
+    public static final String FULFILLED = "FULFILLED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String EXPIRED = "EXPIRED";
+
+    private Long holdid;
+
+    private String bookid;
+
+    private String userid;
+
+    private String status;
+
+    private Date createdat;
+
+    private Date readyat;
+
+    private Date expiresat;
+
+    public Long getHoldid() {
+        return holdid;
+    }
+
+    public void setHoldid(Long holdid) {
+        this.holdid = holdid;
+    }
+
+    public String getBookid() {
+        return bookid;
+    }
+
+    public void setBookid(String bookid) {
+        this.bookid = bookid == null ? null : bookid.trim();
+    }
+
+    public String getUserid() {
+        return userid;
+    }
+
+    public void setUserid(String userid) {
+        this.userid = userid == null ? null : userid.trim();
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Date getCreatedat() {
+        return createdat;
+    }
+
+    public void setCreatedat(Date createdat) {
+        this.createdat = createdat;
+    }
+
+    public Date getReadyat() {
+        return readyat;
+    }
+
+    public void setReadyat(Date readyat) {
+        this.readyat = readyat;
+    }
+
+    public Date getExpiresat() {
+        return expiresat;
+    }
+
+    public void setExpiresat(Date expiresat) {
+        this.expiresat = expiresat;
+    }
+}
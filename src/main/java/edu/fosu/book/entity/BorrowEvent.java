@@ -0,0 +1,99 @@
+package edu.fosu.book.entity;
+
+import java.util.Date;
+
+public class BorrowEvent {
+    public static final String CHECKED_OUT = "CHECKED_OUT";
+    public static final String RETURNED = "RETURNED";
+    public static final String FINED = "FINED";
+    public static final String DELETED = "DELETED";
+    // 补录或导入的已归还借阅，不是一次新的借出，热门和趋势统计不计入
+    public static final String RECORDED = "RECORDED";
+    // 以下两种由到期时间轮产生
+    public static final String DUE_SOON = "DUE_SOON";
+    public static final String OVERDUE = "OVERDUE";
+    // 预约的书已为预约者留出
+    public static final String HOLD_READY = "HOLD_READY";
+
+    private Long eventid;
+
+    private String eventtype;
+
+    private String userid;
+
+    private String bookid;
+
+    // FINED 事件的罚款金额(分)，其他事件为null
+    private Long amount;
+
+    private Date createdat;
+
+    private Integer attempts;
+
+    public BorrowEvent() {}
+
+    public BorrowEvent(String eventtype, String userid, String bookid, Long amount) {
+        this.eventtype = eventtype;
+        this.userid = userid;
+        this.bookid = bookid;
+        this.amount = amount;
+        this.createdat = new Date();
+        this.attempts = 0;
+    }
+
+    public Long getEventid() {
+        return eventid;
+    }
+
+    public void setEventid(Long eventid) {
+        this.eventid = eventid;
+    }
+
+    public String getEventtype() {
+        return eventtype;
+    }
+
+    public void setEventtype(String eventtype) {
+        this.eventtype = eventtype == null ? null : eventtype.trim();
+    }
+
+    public String getUserid() {
+        return userid;
+    }
+
+    public void setUserid(String userid) {
+        this.userid = userid == null ? null : userid.trim();
+    }
+
+    public String getBookid() {
+        return bookid;
+    }
+
+    public void setBookid(String bookid) {
+        this.bookid = bookid == null ? null : bookid.trim();
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public Date getCreatedat() {
+        return createdat;
+    }
+
+    public void setCreatedat(Date createdat) {
+        this.createdat = createdat;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+}
@@ -0,0 +1,34 @@
+package edu.fosu.book.entity;
+
+public class EntityVersion {
+    private String tablename;
+
+    // -1 为整张表的版本号，其余为按行ID哈希的分段
+    private Integer stripe;
+
+    private Long version;
+
+    public String getTablename() {
+        return tablename;
+    }
+
+    public void setTablename(String tablename) {
+        this.tablename = tablename;
+    }
+
+    public Integer getStripe() {
+        return stripe;
+    }
+
+    public void setStripe(Integer stripe) {
+        this.stripe = stripe;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
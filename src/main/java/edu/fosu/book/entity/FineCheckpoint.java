@@ -0,0 +1,116 @@
+package edu.fosu.book.entity;
+
+import java.util.Date;
+
+public class FineCheckpoint {
+    private Date rundate;
+
+    private Integer partitionno;
+
+    private String lowuserid;
+
+    private String highuserid;
+
+    private String lastuserid;
+
+    private String lastbookid;
+
+    private Long scanned;
+
+    private Long updated;
+
+    private Boolean done;
+
+    // 当前处理该分区的实例及其租约到期时间，租约过期后其他实例可以接手
+    private String owner;
+
+    private Date leaseuntil;
+
+    public Date getRundate() {
+        return rundate;
+    }
+
+    public void setRundate(Date rundate) {
+        this.rundate = rundate;
+    }
+
+    public Integer getPartitionno() {
+        return partitionno;
+    }
+
+    public void setPartitionno(Integer partitionno) {
+        this.partitionno = partitionno;
+    }
+
+    public String getLowuserid() {
+        return lowuserid;
+    }
+
+    public void setLowuserid(String lowuserid) {
+        this.lowuserid = lowuserid == null ? null : lowuserid.trim();
+    }
+
+    public String getHighuserid() {
+        return highuserid;
+    }
+
+    public void setHighuserid(String highuserid) {
+        this.highuserid = highuserid == null ? null : highuserid.trim();
+    }
+
+    public String getLastuserid() {
+        return lastuserid;
+    }
+
+    public void setLastuserid(String lastuserid) {
+        this.lastuserid = lastuserid == null ? null : lastuserid.trim();
+    }
+
+    public String getLastbookid() {
+        return lastbookid;
+    }
+
+    public void setLastbookid(String lastbookid) {
+        this.lastbookid = lastbookid == null ? null : lastbookid.trim();
+    }
+
+    public Long getScanned() {
+        return scanned;
+    }
+
+    public void setScanned(Long scanned) {
+        this.scanned = scanned;
+    }
+
+    public Long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(Long updated) {
+        this.updated = updated;
+    }
+
+    public Boolean getDone() {
+        return done;
+    }
+
+    public void setDone(Boolean done) {
+        this.done = done;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Date getLeaseuntil() {
+        return leaseuntil;
+    }
+
+    public void setLeaseuntil(Date leaseuntil) {
+        this.leaseuntil = leaseuntil;
+    }
+}
@@ -0,0 +1,34 @@
+package edu.fosu.book.entity;
+
+public class TokenRevocation {
+    private Long revokeid;
+
+    private String tokenid;
+
+    // 令牌过期时间，epoch 秒
+    private Long expiresat;
+
+    public Long getRevokeid() {
+        return revokeid;
+    }
+
+    public void setRevokeid(Long revokeid) {
+        this.revokeid = revokeid;
+    }
+
+    public String getTokenid() {
+        return tokenid;
+    }
+
+    public void setTokenid(String tokenid) {
+        this.tokenid = tokenid;
+    }
+
+    public Long getExpiresat() {
+        return expiresat;
+    }
+
+    public void setExpiresat(Long expiresat) {
+        this.expiresat = expiresat;
+    }
+}
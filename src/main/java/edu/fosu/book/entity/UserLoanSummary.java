@@ -0,0 +1,56 @@
+package edu.fosu.book.entity;
+
+import java.util.Date;
+
+public class UserLoanSummary {
+    private String userid;
+
+    private Integer activecount;
+
+    private Integer overduecount;
+
+    private Long outstandingcents;
+
+    // 最后一次变化的时间，各实例据此增量同步
+    private Date updatedat;
+
+    public String getUserid() {
+        return userid;
+    }
+
+    public void setUserid(String userid) {
+        this.userid = userid == null ? null : userid.trim();
+    }
+
+    public Integer getActivecount() {
+        return activecount;
+    }
+
+    public void setActivecount(Integer activecount) {
+        this.activecount = activecount;
+    }
+
+    public Integer getOverduecount() {
+        return overduecount;
+    }
+
+    public void setOverduecount(Integer overduecount) {
+        this.overduecount = overduecount;
+    }
+
+    public Long getOutstandingcents() {
+        return outstandingcents;
+    }
+
+    public void setOutstandingcents(Long outstandingcents) {
+        this.outstandingcents = outstandingcents;
+    }
+
+    public Date getUpdatedat() {
+        return updatedat;
+    }
+
+    public void setUpdatedat(Date updatedat) {
+        this.updatedat = updatedat;
+    }
+}
@@ -0,0 +1,7 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.ArchiveReport;
+
+public interface ArchiveService {
+    ArchiveReport run();
+}
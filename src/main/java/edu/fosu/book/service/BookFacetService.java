@@ -0,0 +1,13 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.BookFacets;
+import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.entity.Book;
+
+public interface BookFacetService {
+    BookFacets facets(String keyword, PageResult<Book> page);
+
+    void index(Book book);
+
+    void remove(String bookid);
+}
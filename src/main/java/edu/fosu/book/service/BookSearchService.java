@@ -0,0 +1,18 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.entity.Book;
+
+import java.util.List;
+
+public interface BookSearchService {
+    boolean isReady();
+
+    PageResult<Book> search(String keyword, int page, int size);
+
+    List<String> searchIds(String keyword);
+
+    void index(Book book);
+
+    void remove(String bookid);
+}
@@ -0,0 +1,16 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.Suggestion;
+import edu.fosu.book.entity.Book;
+
+import java.util.List;
+
+public interface BookSuggestService {
+    List<Suggestion> suggest(String prefix, int limit);
+
+    void index(Book book);
+
+    void remove(String bookid);
+
+    void recordBorrow(String bookid, int delta);
+}
@@ -0,0 +1,14 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.entity.BorrowEvent;
+
+// 借阅事件订阅者。事件至少投递一次，同一用户的事件按发生顺序投递；抛出异常表示处理失败，稍后重投
+public interface BorrowEventListener {
+    void onEvent(BorrowEvent event);
+
+    // 返回 true 表示维护的是本实例内存里的状态，每个实例都要收到全部事件；
+    // 默认 false，事件在所有实例中只由一个实例投递一次
+    default boolean isBroadcast() {
+        return false;
+    }
+}
@@ -1,6 +1,9 @@
 package edu.fosu.book.service;
 
+import edu.fosu.book.dto.BorrowView;
+import edu.fosu.book.entity.BookHold;
 import edu.fosu.book.entity.Borrow;
+import edu.fosu.book.entity.Inventory;
 
 import java.util.List;
 
@@ -14,4 +17,19 @@ public interface BorrowService {
     Borrow updateByPrimaryKey(Borrow borrow);
 
     void deleteByPrimaryKey(String userid, String bookid);
+
+    Borrow checkout(String userid, String bookid);
+
+    Borrow returnBook(String userid, String bookid);
+
+    Inventory getInventory(String bookid);
+
+    Inventory updateCopies(String bookid, int total);
+
+    BookHold placeHold(String userid, String bookid);
+
+    void cancelHold(String userid, String bookid);
+
+    // 为一页借阅记录补上用户名和书名
+    List<BorrowView> toViews(List<Borrow> borrows);
 }
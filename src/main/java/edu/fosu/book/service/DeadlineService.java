@@ -0,0 +1,7 @@
+package edu.fosu.book.service;
+
+import java.util.Map;
+
+public interface DeadlineService {
+    Map<String, Object> stats();
+}
@@ -1,5 +1,6 @@
 package edu.fosu.book.service;
 
+import edu.fosu.book.common.DepartTree;
 import edu.fosu.book.entity.Depart;
 
 import java.util.List;
@@ -14,4 +15,7 @@ public interface DepartService {
     Depart updateByPrimaryKey(Depart depart);
 
     void deleteByPrimaryKey(String id);
+
+    // 当前部门树快照，只读，不访问数据库
+    DepartTree getTree();
 }
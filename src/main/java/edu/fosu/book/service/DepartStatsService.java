@@ -0,0 +1,19 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.common.LoanSummaryDelta;
+import edu.fosu.book.dto.DepartStats;
+import edu.fosu.book.dto.DepartStatsReport;
+import edu.fosu.book.dto.LoanSummary;
+
+public interface DepartStatsService {
+    // 部门不存在时返回null
+    DepartStats get(String departid);
+
+    // 用户借阅汇总在内存中变化后调用，按用户所在部门累加并沿上级链传递
+    void apply(LoanSummaryDelta delta);
+
+    // 用户新建、调动部门或删除后调用，departid 为null表示不再属于任何部门；current 为该用户当前的借阅汇总
+    void assign(String userid, String departid, LoanSummary current);
+
+    DepartStatsReport verify();
+}
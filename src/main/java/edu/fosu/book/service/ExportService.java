@@ -0,0 +1,14 @@
+package edu.fosu.book.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    void exportBooks(String format, OutputStream out) throws IOException;
+
+    void exportUsers(String format, OutputStream out) throws IOException;
+
+    void exportDeparts(String format, OutputStream out) throws IOException;
+
+    void exportBorrows(String format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,7 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.FineReport;
+
+public interface FineService {
+    FineReport run();
+}
@@ -0,0 +1,32 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.HoldPosition;
+import edu.fosu.book.entity.BookHold;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 图书预约队列。enqueue 不加锁；其余修改状态的方法需在借还书的图书锁和事务内调用，
+ * 内存状态在事务提交后才更新。
+ */
+public interface HoldService {
+    BookHold enqueue(String userid, String bookid);
+
+    // 把一册书交给队首的预约者，队列为空时返回null
+    BookHold handoff(String bookid);
+
+    BookHold ready(String userid, String bookid);
+
+    void fulfill(BookHold hold);
+
+    BookHold cancel(String userid, String bookid);
+
+    boolean expire(BookHold hold);
+
+    List<BookHold> expired(Date now, int limit);
+
+    boolean hasWaiting(String bookid);
+
+    HoldPosition position(String userid, String bookid);
+}
@@ -0,0 +1,12 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImportService {
+    ImportReport importBooks(InputStream in, boolean csv) throws IOException;
+
+    ImportReport importBorrows(InputStream in, boolean csv) throws IOException;
+}
@@ -0,0 +1,22 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.common.LoanSummaryDelta;
+import edu.fosu.book.dto.LoanSummary;
+import edu.fosu.book.dto.RepairReport;
+import edu.fosu.book.entity.Borrow;
+
+import java.util.Collection;
+
+public interface LoanSummaryService {
+    LoanSummary get(String userid);
+
+    // 在调用方的事务内写入汇总表，提交后需调用 refresh 同步内存
+    void recordChange(Borrow before, Borrow after);
+
+    // 同上，供 BATCH 执行器的批量事务使用
+    void recordChanges(LoanSummaryDelta delta);
+
+    void refresh(Collection<String> userids);
+
+    RepairReport repair();
+}
@@ -0,0 +1,16 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.entity.BorrowEvent;
+
+import java.util.List;
+import java.util.Map;
+
+public interface OutboxService {
+    // 在调用方的事务内写入事件，随事务一起提交
+    void append(BorrowEvent event);
+
+    // 同上，供 BATCH 执行器的批量事务使用
+    void appendAll(List<BorrowEvent> events);
+
+    Map<String, Object> stats();
+}
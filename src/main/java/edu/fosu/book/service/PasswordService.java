@@ -0,0 +1,11 @@
+package edu.fosu.book.service;
+
+import java.util.Map;
+
+public interface PasswordService {
+    String encode(String rawPassword);
+
+    boolean matches(String rawPassword, String storedPassword);
+
+    Map<String, Object> stats();
+}
@@ -0,0 +1,15 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.UserInfo;
+
+public interface TokenService {
+    boolean isTokenMode();
+
+    String issue(UserInfo userInfo);
+
+    UserInfo verify(String token);
+
+    String refresh(String token);
+
+    void revoke(String token);
+}
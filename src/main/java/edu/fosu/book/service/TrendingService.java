@@ -0,0 +1,10 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dto.TrendingBook;
+
+import java.util.List;
+
+public interface TrendingService {
+    // window 取 1h、24h、7d
+    List<TrendingBook> top(String window, int limit);
+}
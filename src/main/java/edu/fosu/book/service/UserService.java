@@ -14,4 +14,6 @@ public interface UserService {
     User updateByPrimaryKey(User user);
 
     void deleteByPrimaryKey(String id);
+
+    boolean isUsernameAvailable(String username);
 }
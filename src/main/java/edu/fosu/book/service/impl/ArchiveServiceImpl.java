@@ -0,0 +1,114 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.CountCache;
+import edu.fosu.book.common.EntityCacheManager;
+import edu.fosu.book.dao.BorrowMapper;
+import edu.fosu.book.dto.ArchiveReport;
+import edu.fosu.book.entity.Borrow;
+import edu.fosu.book.service.ArchiveService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 借阅记录归档：归还超过 archive.min-age-days 天且罚款已结清的记录从 borrow 移到按年份分区的 borrowhistory。
+ * 每批在一个事务里先 FOR UPDATE 锁定主键，再复制到历史表并删除，复制和删除都重新校验归档条件，
+ * 锁定之后被再次借出的记录不会被移走。热表只保留未归还、欠款未清或较新的记录。
+ */
+@Service
+public class ArchiveServiceImpl implements ArchiveService {
+    private static final Logger log = LoggerFactory.getLogger(ArchiveServiceImpl.class);
+
+    @Autowired
+    BorrowMapper borrowMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    CountCache countCache;
+
+    @Autowired
+    EntityCacheManager entityCacheManager;
+
+    @Value("${archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archive.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${archive.batch-size:1000}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${archive.cron:0 0 4 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ArchiveReport report = run();
+            log.info("借阅归档完成: {}批, 移动{}行, 耗时{}ms", report.getBatches(), report.getMoved(), report.getMillis());
+        } catch (BusinessException e) {
+            log.warn("借阅归档未执行: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public ArchiveReport run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException(409, "归档正在进行中");
+        }
+        long start = System.currentTimeMillis();
+        ArchiveReport report = new ArchiveReport();
+        try {
+            Date before = new Date(start - minAgeDays * 86400000L);
+            String[] last = {null, null};
+            while (true) {
+                Integer moved = transactionTemplate.execute(status -> {
+                    List<Borrow> keys = borrowMapper.selectArchivable(before, last[0], last[1], batchSize);
+                    if (keys.isEmpty()) {
+                        return null;
+                    }
+                    Borrow tail = keys.get(keys.size() - 1);
+                    last[0] = tail.getUserid();
+                    last[1] = tail.getBookid();
+                    borrowMapper.insertHistory(keys, before);
+                    return borrowMapper.deleteArchived(keys, before);
+                });
+                if (moved == null) {
+                    break;
+                }
+                report.setBatches(report.getBatches() + 1);
+                report.setMoved(report.getMoved() + moved);
+            }
+        } finally {
+            if (report.getMoved() > 0) {
+                countCache.invalidate("borrow");
+                countCache.invalidate("borrowHistory");
+                entityCacheManager.clear("borrow");
+            }
+            running.set(false);
+        }
+        report.setMillis(System.currentTimeMillis() - start);
+        return report;
+    }
+}
@@ -0,0 +1,273 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.dao.BookMapper;
+import edu.fosu.book.dto.BookFacets;
+import edu.fosu.book.dto.FacetCount;
+import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.entity.Book;
+import edu.fosu.book.service.BookFacetService;
+import edu.fosu.book.service.BookSearchService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图书分面统计：出版社、出版年份、价格区间。每本书占一个槽位，各维度用 int[] 记录槽位上的取值编号，
+ * 每个取值维护一个槽位 BitSet 和一个 int 计数。无关键字时直接读计数；
+ * 有关键字时把命中的图书转成槽位 BitSet，与各取值的 BitSet 求交后取基数。
+ */
+@Service
+public class BookFacetServiceImpl implements BookFacetService {
+    private static final String UNKNOWN = "未知";
+
+    @Autowired
+    BookMapper bookMapper;
+
+    @Autowired
+    BookSearchService bookSearchService;
+
+    @Value("${book.facet.price-bands:20,50,100,200}")
+    private int[] priceBands;
+
+    @Value("${book.facet.max-values:20}")
+    private int maxValues;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+
+    private final Dimension publication = new Dimension();
+    private final Dimension year = new Dimension();
+    private final Dimension price = new Dimension();
+
+    @PostConstruct
+    public void load() {
+        Arrays.sort(priceBands);
+        // 价格区间的取值编号固定为区间顺序，便于按区间升序输出
+        for (int i = 0; i <= priceBands.length; i++) {
+            price.id(bandLabel(i));
+        }
+        price.id(UNKNOWN);
+        List<Book> books = bookMapper.selectAll();
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                add(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BookFacets facets(String keyword, PageResult<Book> page) {
+        Collection<String> ids = null;
+        if (keyword != null && !keyword.isEmpty()) {
+            // 命中集合与分页列表使用同一套匹配规则，索引未就绪时回退到数据库
+            ids = bookSearchService.isReady()
+                ? bookSearchService.searchIds(keyword)
+                : bookMapper.selectIdsByKeyword(keyword);
+        }
+        lock.readLock().lock();
+        try {
+            BitSet matched = null;
+            if (ids != null) {
+                matched = new BitSet(nextSlot);
+                for (String id : ids) {
+                    Integer slot = slots.get(id);
+                    if (slot != null) {
+                        matched.set(slot);
+                    }
+                }
+            }
+            return new BookFacets(page, byCount(publication, matched), byYear(matched), byBand(matched));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getBookid() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeBook(book.getBookid());
+            add(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String bookid) {
+        if (bookid == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeBook(bookid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Book book) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+        slots.put(book.getBookid(), slot);
+        publication.add(slot, publication.id(blankToUnknown(book.getPublication())));
+        year.add(slot, year.id(yearOf(book)));
+        price.add(slot, price.id(bandOf(book.getPrice())));
+    }
+
+    private void removeBook(String bookid) {
+        Integer slot = slots.remove(bookid);
+        if (slot == null) {
+            return;
+        }
+        publication.remove(slot);
+        year.remove(slot);
+        price.remove(slot);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private List<FacetCount> byCount(Dimension dimension, BitSet matched) {
+        List<FacetCount> result = dimension.counts(matched);
+        result.sort((a, b) -> a.getCount() != b.getCount()
+            ? Integer.compare(b.getCount(), a.getCount())
+            : a.getValue().compareTo(b.getValue()));
+        return result.size() > maxValues ? new ArrayList<>(result.subList(0, maxValues)) : result;
+    }
+
+    private List<FacetCount> byYear(BitSet matched) {
+        List<FacetCount> result = year.counts(matched);
+        // 未知年份排在最后
+        result.sort((a, b) -> UNKNOWN.equals(a.getValue()) ? 1
+            : UNKNOWN.equals(b.getValue()) ? -1
+            : b.getValue().compareTo(a.getValue()));
+        return result;
+    }
+
+    private List<FacetCount> byBand(BitSet matched) {
+        // 取值编号即区间顺序，counts 按编号输出
+        return price.counts(matched);
+    }
+
+    private static String blankToUnknown(String value) {
+        return value == null || value.trim().isEmpty() ? UNKNOWN : value.trim();
+    }
+
+    private static String yearOf(Book book) {
+        if (book.getPublicdate() == null) {
+            return UNKNOWN;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(book.getPublicdate());
+        return String.valueOf(calendar.get(Calendar.YEAR));
+    }
+
+    private String bandOf(BigDecimal value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        int i = 0;
+        while (i < priceBands.length && value.compareTo(BigDecimal.valueOf(priceBands[i])) >= 0) {
+            i++;
+        }
+        return bandLabel(i);
+    }
+
+    private String bandLabel(int band) {
+        if (band == priceBands.length) {
+            return priceBands.length == 0 ? "0+" : priceBands[band - 1] + "+";
+        }
+        return (band == 0 ? 0 : priceBands[band - 1]) + "-" + priceBands[band];
+    }
+
+    private static final class Dimension {
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> names = new ArrayList<>();
+        final List<BitSet> bits = new ArrayList<>();
+        int[] counts = new int[16];
+        // 槽位 -> 取值编号
+        int[] valueOf = new int[64];
+
+        int id(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = names.size();
+                ids.put(value, id);
+                names.add(value);
+                bits.add(new BitSet());
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, id << 1);
+                }
+            }
+            return id;
+        }
+
+        void add(int slot, int id) {
+            if (slot >= valueOf.length) {
+                valueOf = Arrays.copyOf(valueOf, Math.max(slot + 1, valueOf.length << 1));
+            }
+            valueOf[slot] = id;
+            bits.get(id).set(slot);
+            counts[id]++;
+        }
+
+        void remove(int slot) {
+            int id = valueOf[slot];
+            bits.get(id).clear(slot);
+            counts[id]--;
+        }
+
+        // 按取值编号顺序输出非零计数；matched 非空时与各取值的 BitSet 求交，
+        // 命中的图书比取值还少时改为逐个槽位累加
+        List<FacetCount> counts(BitSet matched) {
+            int[] tally = null;
+            if (matched != null && matched.cardinality() < names.size()) {
+                tally = new int[names.size()];
+                for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+                    tally[valueOf[slot]]++;
+                }
+            }
+            List<FacetCount> result = new ArrayList<>();
+            for (int id = 0; id < names.size(); id++) {
+                int count;
+                if (tally != null) {
+                    count = tally[id];
+                } else if (matched == null) {
+                    count = counts[id];
+                } else if (counts[id] == 0) {
+                    count = 0;
+                } else {
+                    BitSet and = (BitSet) bits.get(id).clone();
+                    and.and(matched);
+                    count = and.cardinality();
+                }
+                if (count > 0) {
+                    result.add(new FacetCount(names.get(id), count));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.entity.BorrowEvent;
+import edu.fosu.book.service.BookSuggestService;
+import edu.fosu.book.service.BorrowEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订阅借阅事件，维护联想词条里的借阅次数。借阅次数与启动时按借阅表行数统计的口径一致，
+ * 补录的已归还记录同样计入，否则删除这类记录时的减一会让计数偏小。
+ */
+@Component
+public class BookPopularityListener implements BorrowEventListener {
+    @Autowired
+    BookSuggestService bookSuggestService;
+
+    // 联想词条在每个实例的内存里
+    @Override
+    public boolean isBroadcast() {
+        return true;
+    }
+
+    @Override
+    public void onEvent(BorrowEvent event) {
+        if (BorrowEvent.CHECKED_OUT.equals(event.getEventtype()) || BorrowEvent.RECORDED.equals(event.getEventtype())) {
+            bookSuggestService.recordBorrow(event.getBookid(), 1);
+        } else if (BorrowEvent.DELETED.equals(event.getEventtype())) {
+            bookSuggestService.recordBorrow(event.getBookid(), -1);
+        }
+    }
+}
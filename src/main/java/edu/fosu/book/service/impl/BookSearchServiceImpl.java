@@ -0,0 +1,324 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.dao.BookMapper;
+import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.entity.Book;
+import edu.fosu.book.service.BookSearchService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图书全文检索：对书名、作者、出版社、图书ID建立单字+二元组(bigram)倒排索引，
+ * 中文按字切分，英文按字符切分，命中后再做一次子串校验，结果与 LIKE '%kw%' 一致。
+ */
+@Service
+public class BookSearchServiceImpl implements BookSearchService {
+    @Autowired
+    BookMapper bookMapper;
+
+    @Value("${book.search.index.enabled:true}")
+    private boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // gram -> 递增的文档号列表
+    private final Map<String, IntList> postings = new HashMap<>();
+    // 文档号 -> 图书，删除后置为null
+    private final List<Book> docs = new ArrayList<>();
+    // 图书ID -> 当前文档号
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private int deleted;
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        List<Book> books = bookMapper.selectAll();
+        lock.writeLock().lock();
+        try {
+            rebuild(books);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public PageResult<Book> search(String keyword, int page, int size) {
+        String q = normalize(keyword);
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int docId : candidates(q)) {
+                Book book = docs.get(docId);
+                if (book == null) {
+                    continue;
+                }
+                int score = score(book, q);
+                if (score > 0) {
+                    hits.add(new Hit(book, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort((a, b) -> a.score != b.score
+            ? Integer.compare(b.score, a.score)
+            : a.book.getBookid().compareTo(b.book.getBookid()));
+
+        int from = Math.max(0, (page - 1) * size);
+        int to = Math.min(hits.size(), from + Math.max(0, size));
+        List<Book> list = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            list.add(hits.get(i).book);
+        }
+        return new PageResult<>(list, hits.size(), page, size);
+    }
+
+    @Override
+    public List<String> searchIds(String keyword) {
+        String q = normalize(keyword);
+        List<String> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int docId : candidates(q)) {
+                Book book = docs.get(docId);
+                if (book != null && score(book, q) > 0) {
+                    ids.add(book.getBookid());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    @Override
+    public void index(Book book) {
+        if (!ready || book == null || book.getBookid() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            unindex(book.getBookid());
+            add(copy(book));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String bookid) {
+        if (!ready || bookid == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            unindex(bookid);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild(List<Book> books) {
+        postings.clear();
+        docs.clear();
+        docIds.clear();
+        deleted = 0;
+        for (Book book : books) {
+            add(book);
+        }
+    }
+
+    private void add(Book book) {
+        int docId = docs.size();
+        docs.add(book);
+        docIds.put(book.getBookid(), docId);
+
+        Set<String> grams = new HashSet<>();
+        collectGrams(normalize(book.getBookname()), grams);
+        collectGrams(normalize(book.getAuthors()), grams);
+        collectGrams(normalize(book.getPublication()), grams);
+        collectGrams(normalize(book.getBookid()), grams);
+        for (String gram : grams) {
+            // 文档号单调递增，直接追加即可保持有序
+            postings.computeIfAbsent(gram, k -> new IntList()).add(docId);
+        }
+    }
+
+    private void unindex(String bookid) {
+        Integer docId = docIds.remove(bookid);
+        if (docId != null) {
+            docs.set(docId, null);
+            deleted++;
+        }
+    }
+
+    // 删除过半时整体重建，回收倒排表中的失效文档号
+    private void compactIfNeeded() {
+        if (deleted > 1024 && deleted * 2 > docs.size()) {
+            List<Book> live = new ArrayList<>(docs.size() - deleted);
+            for (Book book : docs) {
+                if (book != null) {
+                    live.add(book);
+                }
+            }
+            rebuild(live);
+        }
+    }
+
+    private static void collectGrams(String text, Set<String> grams) {
+        for (int i = 0; i < text.length(); i++) {
+            grams.add(text.substring(i, i + 1));
+            if (i + 1 < text.length()) {
+                grams.add(text.substring(i, i + 2));
+            }
+        }
+    }
+
+    private List<Integer> candidates(String q) {
+        if (q.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> grams = new HashSet<>();
+        if (q.length() == 1) {
+            grams.add(q);
+        } else {
+            for (int i = 0; i + 1 < q.length(); i++) {
+                grams.add(q.substring(i, i + 2));
+            }
+        }
+
+        List<IntList> lists = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            IntList list = postings.get(gram);
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            lists.add(list);
+        }
+        // 从最短的倒排表开始求交集
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        IntList first = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        List<Integer> result = new ArrayList<>();
+        outer:
+        for (int i = 0; i < first.size; i++) {
+            int docId = first.data[i];
+            for (int j = 1; j < lists.size(); j++) {
+                IntList other = lists.get(j);
+                int pos = other.seek(docId, cursors[j]);
+                cursors[j] = pos;
+                if (pos >= other.size) {
+                    break outer;
+                }
+                if (other.data[pos] != docId) {
+                    continue outer;
+                }
+            }
+            result.add(docId);
+        }
+        return result;
+    }
+
+    // 二元组命中只是候选，这里做子串校验并打分，书名命中权重最高
+    private static int score(Book book, String q) {
+        int score = 0;
+        String name = normalize(book.getBookname());
+        if (name.equals(q)) {
+            score += 100;
+        } else if (name.startsWith(q)) {
+            score += 60;
+        } else if (name.contains(q)) {
+            score += 40;
+        }
+        String id = normalize(book.getBookid());
+        if (id.equals(q)) {
+            score += 90;
+        } else if (id.contains(q)) {
+            score += 15;
+        }
+        if (normalize(book.getAuthors()).contains(q)) {
+            score += 20;
+        }
+        if (normalize(book.getPublication()).contains(q)) {
+            score += 10;
+        }
+        return score;
+    }
+
+    // 不去掉首尾空白：LIKE 按原样匹配关键字里的空格，只含空格的关键字也要命中带空格的字段
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static Book copy(Book source) {
+        Book book = new Book();
+        book.setBookid(source.getBookid());
+        book.setBookname(source.getBookname());
+        book.setAuthors(source.getAuthors());
+        book.setPublication(source.getPublication());
+        book.setPublicdate(source.getPublicdate());
+        book.setPrice(source.getPrice());
+        return book;
+    }
+
+    private static final class Hit {
+        final Book book;
+        final int score;
+
+        Hit(Book book, int score) {
+            this.book = book;
+            this.score = score;
+        }
+    }
+
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size << 1);
+            }
+            data[size++] = value;
+        }
+
+        // 从from开始倍增+二分查找第一个>=target的位置
+        int seek(int target, int from) {
+            int bound = 1;
+            int lo = from;
+            while (from + bound < size && data[from + bound] < target) {
+                lo = from + bound;
+                bound <<= 1;
+            }
+            int hi = Math.min(size, from + bound + 1);
+            int idx = Arrays.binarySearch(data, lo, hi, target);
+            return idx >= 0 ? idx : -idx - 1;
+        }
+    }
+}
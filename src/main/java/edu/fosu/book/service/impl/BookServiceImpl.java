@@ -1,21 +1,84 @@
 package edu.fosu.book.service.impl;
 
+import edu.fosu.book.common.CountCache;
+import edu.fosu.book.common.EntityCache;
+import edu.fosu.book.common.EntityCacheManager;
+import edu.fosu.book.common.VersionRegistry;
 import edu.fosu.book.dao.BookMapper;
 import edu.fosu.book.entity.Book;
+import edu.fosu.book.service.BookFacetService;
+import edu.fosu.book.service.BookSearchService;
 import edu.fosu.book.service.BookService;
+import edu.fosu.book.service.BookSuggestService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class BookServiceImpl implements BookService {
     @Autowired
     BookMapper bookMapper;
 
+    @Autowired
+    CountCache countCache;
+
+    @Autowired
+    EntityCacheManager entityCacheManager;
+
+    @Autowired
+    VersionRegistry versionRegistry;
+
+    private EntityCache<String, Book> cache;
+
+    @PostConstruct
+    public void initCache() {
+        cache = entityCacheManager.create("book", BookServiceImpl::copy);
+        // 其他实例改动图书后，在新 ETag 生效前失效本实例的缓存和总数，并按库里的最新数据更新检索索引
+        versionRegistry.onChange("book", ids -> {
+            ids.forEach(cache::invalidate);
+            countCache.invalidate("book");
+            reindex(ids);
+        });
+    }
+
+    private static final int REINDEX_CHUNK = 1000;
+
+    // 库里已不存在的图书从索引中移除，其余按最新数据重建索引项；编号按库的排序规则不区分大小写和尾部空格比较
+    private void reindex(List<String> ids) {
+        for (int i = 0; i < ids.size(); i += REINDEX_CHUNK) {
+            List<String> chunk = ids.subList(i, Math.min(ids.size(), i + REINDEX_CHUNK));
+            Map<String, String> missing = new HashMap<>();
+            chunk.forEach(id -> missing.put(id.trim().toLowerCase(), id));
+            for (Book book : bookMapper.selectByIds(chunk)) {
+                missing.remove(book.getBookid().trim().toLowerCase());
+                bookSearchService.index(book);
+                bookSuggestService.index(book);
+                bookFacetService.index(book);
+            }
+            for (String id : missing.values()) {
+                bookSearchService.remove(id);
+                bookSuggestService.remove(id);
+                bookFacetService.remove(id);
+            }
+        }
+    }
+
+    @Autowired
+    BookSearchService bookSearchService;
+
+    @Autowired
+    BookSuggestService bookSuggestService;
+
+    @Autowired
+    BookFacetService bookFacetService;
+
     @Override
     public Book selectByPrimaryKey(String id) {
-        return bookMapper.selectByPrimaryKey(id);
+        return cache.get(id, bookMapper::selectByPrimaryKey);
     }
 
     @Override
@@ -26,8 +89,14 @@ public class BookServiceImpl implements BookService {
     @Override
     public Book insertBook(Book book) {
         int ret = bookMapper.insert(book);
-        if(ret > 0)
+        if(ret > 0) {
+            countCache.invalidate("book");
+            bookSearchService.index(book);
+            bookSuggestService.index(book);
+            bookFacetService.index(book);
+            versionRegistry.bump("book", book.getBookid());
             return book;
+        }
         else
             return null;
     }
@@ -35,8 +104,15 @@ public class BookServiceImpl implements BookService {
     @Override
     public Book updateByPrimaryKey(Book book) {
         int ret = bookMapper.updateByPrimaryKey(book);
-        if(ret > 0)
+        cache.invalidate(book.getBookid());
+        if(ret > 0) {
+            countCache.invalidate("book");
+            bookSearchService.index(book);
+            bookSuggestService.index(book);
+            bookFacetService.index(book);
+            versionRegistry.bump("book", book.getBookid());
             return book;
+        }
         else
             return null;
     }
@@ -44,5 +120,22 @@ public class BookServiceImpl implements BookService {
     @Override
     public void deleteByPrimaryKey(String id) {
         bookMapper.deleteByPrimaryKey(id);
+        cache.invalidate(id);
+        countCache.invalidate("book");
+        bookSearchService.remove(id);
+        bookSuggestService.remove(id);
+        bookFacetService.remove(id);
+        versionRegistry.bump("book", id);
+    }
+
+    private static Book copy(Book source) {
+        Book target = new Book();
+        target.setBookid(source.getBookid());
+        target.setBookname(source.getBookname());
+        target.setAuthors(source.getAuthors());
+        target.setPublication(source.getPublication());
+        target.setPublicdate(source.getPublicdate());
+        target.setPrice(source.getPrice());
+        return target;
     }
 }
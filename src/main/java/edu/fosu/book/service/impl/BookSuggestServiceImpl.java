@@ -0,0 +1,423 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.dao.BookMapper;
+import edu.fosu.book.dao.BorrowMapper;
+import edu.fosu.book.dto.BookBorrowCount;
+import edu.fosu.book.dto.Suggestion;
+import edu.fosu.book.entity.Book;
+import edu.fosu.book.service.BookSuggestService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 书名/作者/出版社前缀联想。词条放在压缩前缀树(radix trie)里，除完整值外，
+ * 空格、间隔号、冒号、括号之后的部分也作为键，例如“[美] Stephen Prata”可以用“prata”联想到。
+ * 词条得分 = 关联图书数 + 这些图书的借阅次数；每个节点缓存子树内得分最高的 N 个词条，
+ * 写入时只清空受影响路径上的缓存，查询只需走到前缀节点读取缓存。
+ */
+@Service
+public class BookSuggestServiceImpl implements BookSuggestService {
+    private static final String SEPARATORS = " ·•:：(（[【]】)）/,，";
+
+    @Autowired
+    BookMapper bookMapper;
+
+    @Autowired
+    BorrowMapper borrowMapper;
+
+    @Value("${book.suggest.max-results:10}")
+    private int maxResults;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, List<Entry>> bookEntries = new HashMap<>();
+    private final Map<String, Integer> popularity = new HashMap<>();
+
+    @PostConstruct
+    public void load() {
+        List<BookBorrowCount> counts = borrowMapper.countByBook();
+        List<Book> books = bookMapper.selectAll();
+        lock.writeLock().lock();
+        try {
+            for (BookBorrowCount count : counts) {
+                popularity.put(count.getBookid(), count.getCount());
+            }
+            for (Book book : books) {
+                add(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            Entry[] top = top(node);
+            int n = Math.min(limit, top.length);
+            List<Suggestion> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                result.add(new Suggestion(top[i].text, top[i].type, top[i].score));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getBookid() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeBook(book.getBookid());
+            add(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String bookid) {
+        lock.writeLock().lock();
+        try {
+            removeBook(bookid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void recordBorrow(String bookid, int delta) {
+        if (bookid == null || delta == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            popularity.merge(bookid, delta, Integer::sum);
+            for (Entry entry : bookEntries.getOrDefault(bookid, Collections.emptyList())) {
+                entry.score += delta;
+                for (String key : entry.keys) {
+                    invalidate(key);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Book book) {
+        List<Entry> added = new ArrayList<>(3);
+        addField(book.getBookid(), book.getBookname(), "title", added);
+        addField(book.getBookid(), book.getAuthors(), "author", added);
+        addField(book.getBookid(), book.getPublication(), "publisher", added);
+        if (!added.isEmpty()) {
+            bookEntries.put(book.getBookid(), added);
+        }
+    }
+
+    private void addField(String bookid, String text, String type, List<Entry> added) {
+        if (text == null || text.trim().isEmpty()) {
+            return;
+        }
+        String display = text.trim();
+        Entry entry = entries.get(type + '\u0000' + display);
+        if (entry == null) {
+            entry = new Entry(display, type, keysOf(display));
+            entries.put(type + '\u0000' + display, entry);
+            for (String key : entry.keys) {
+                insert(key, entry);
+            }
+        }
+        if (entry.bookids.add(bookid)) {
+            entry.score += 1 + popularity.getOrDefault(bookid, 0);
+            added.add(entry);
+            for (String key : entry.keys) {
+                invalidate(key);
+            }
+        }
+    }
+
+    private void removeBook(String bookid) {
+        List<Entry> removed = bookEntries.remove(bookid);
+        if (removed == null) {
+            return;
+        }
+        for (Entry entry : removed) {
+            entry.bookids.remove(bookid);
+            entry.score -= 1 + popularity.getOrDefault(bookid, 0);
+            for (String key : entry.keys) {
+                if (entry.bookids.isEmpty()) {
+                    delete(key, entry);
+                } else {
+                    invalidate(key);
+                }
+            }
+            if (entry.bookids.isEmpty()) {
+                entries.remove(entry.type + '\u0000' + entry.text);
+            }
+        }
+    }
+
+    // 完整值以及每个分隔符之后的部分都作为联想键
+    private static Set<String> keysOf(String text) {
+        String normalized = normalize(text);
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(normalized);
+        for (int i = 0; i < normalized.length() - 1; i++) {
+            if (SEPARATORS.indexOf(normalized.charAt(i)) >= 0) {
+                String rest = normalized.substring(i + 1).trim();
+                if (!rest.isEmpty() && SEPARATORS.indexOf(rest.charAt(0)) < 0) {
+                    keys.add(rest);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void insert(String key, Entry entry) {
+        Node node = root;
+        int i = 0;
+        while (true) {
+            node.top = null;
+            if (i == key.length()) {
+                if (node.values == null) {
+                    node.values = new ArrayList<>(1);
+                }
+                node.values.add(entry);
+                return;
+            }
+            int slot = node.childIndex(key.charAt(i));
+            if (slot < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.values = new ArrayList<>(1);
+                leaf.values.add(entry);
+                node.addChild(leaf);
+                return;
+            }
+            Node child = node.children[slot];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // 边标签只匹配了一部分，拆出中间节点
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[] {child};
+                node.children[slot] = middle;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+    }
+
+    private void delete(String key, Entry entry) {
+        Node parent = null;
+        Node node = root;
+        int i = 0;
+        while (true) {
+            node.top = null;
+            if (i == key.length()) {
+                break;
+            }
+            int slot = node.childIndex(key.charAt(i));
+            if (slot < 0) {
+                return;
+            }
+            Node child = node.children[slot];
+            if (!key.startsWith(child.label, i)) {
+                return;
+            }
+            parent = node;
+            node = child;
+            i += child.label.length();
+        }
+        if (node.values != null) {
+            node.values.remove(entry);
+            if (node.values.isEmpty()) {
+                node.values = null;
+            }
+        }
+        if (parent != null && node.values == null && node.children.length == 0) {
+            parent.removeChild(node);
+        }
+    }
+
+    private void invalidate(String key) {
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            node.top = null;
+            if (i >= key.length()) {
+                return;
+            }
+            int slot = node.childIndex(key.charAt(i));
+            if (slot < 0) {
+                return;
+            }
+            Node child = node.children[slot];
+            i += child.label.length();
+            node = child;
+        }
+    }
+
+    // 查找前缀所在的节点，前缀可以止于某条边的中间
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int slot = node.childIndex(prefix.charAt(i));
+            if (slot < 0) {
+                return null;
+            }
+            Node child = node.children[slot];
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    // 节点的前N名 = 自身词条与各子节点前N名合并后取前N，结果缓存在节点上
+    private Entry[] top(Node node) {
+        Entry[] cached = node.top;
+        if (cached != null) {
+            return cached;
+        }
+        List<Entry> candidates = new ArrayList<>();
+        if (node.values != null) {
+            candidates.addAll(node.values);
+        }
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(top(child)));
+        }
+        candidates.sort((a, b) -> a.score != b.score ? Integer.compare(b.score, a.score) : a.text.compareTo(b.text));
+        List<Entry> top = new ArrayList<>(maxResults);
+        Set<Entry> seen = new HashSet<>();
+        for (Entry entry : candidates) {
+            if (top.size() >= maxResults) {
+                break;
+            }
+            if (seen.add(entry)) {
+                top.add(entry);
+            }
+        }
+        cached = top.toArray(new Entry[0]);
+        node.top = cached;
+        return cached;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int n = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Entry {
+        final String text;
+        final String type;
+        final Set<String> keys;
+        final Set<String> bookids = new HashSet<>(2);
+        int score;
+
+        Entry(String text, String type, Set<String> keys) {
+            this.text = text;
+            this.type = type;
+            this.keys = keys;
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        String label;
+        // 按边标签首字符排序
+        Node[] children = NO_CHILDREN;
+        List<Entry> values;
+        volatile Entry[] top;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char c) {
+            int lo = 0;
+            int hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char m = children[mid].label.charAt(0);
+                if (m < c) {
+                    lo = mid + 1;
+                } else if (m > c) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        void addChild(Node child) {
+            char c = child.label.charAt(0);
+            int pos = 0;
+            while (pos < children.length && children[pos].label.charAt(0) < c) {
+                pos++;
+            }
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, pos);
+            grown[pos] = child;
+            System.arraycopy(children, pos, grown, pos + 1, children.length - pos);
+            children = grown;
+        }
+
+        void removeChild(Node child) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    Node[] shrunk = new Node[children.length - 1];
+                    System.arraycopy(children, 0, shrunk, 0, i);
+                    System.arraycopy(children, i + 1, shrunk, i, children.length - i - 1);
+                    children = shrunk;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,21 +1,96 @@
 package edu.fosu.book.service.impl;
 
+import edu.fosu.book.common.BookLocks;
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.CountCache;
+import edu.fosu.book.common.EntityCache;
+import edu.fosu.book.common.EntityCacheManager;
+import edu.fosu.book.common.LoanSummaryDelta;
 import edu.fosu.book.dao.BorrowMapper;
+import edu.fosu.book.dao.InventoryMapper;
+import edu.fosu.book.dto.BorrowView;
+import edu.fosu.book.dto.IdName;
+import edu.fosu.book.entity.BookHold;
 import edu.fosu.book.entity.Borrow;
+import edu.fosu.book.entity.BorrowEvent;
+import edu.fosu.book.entity.Inventory;
 import edu.fosu.book.service.BorrowService;
+import edu.fosu.book.service.HoldService;
+import edu.fosu.book.service.LoanSummaryService;
+import edu.fosu.book.service.OutboxService;
+import edu.fosu.book.service.UserService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 @Service
 public class BorrowServiceImpl implements BorrowService {
     @Autowired
     BorrowMapper borrowMapper;
 
+    @Autowired
+    CountCache countCache;
+
+    @Autowired
+    EntityCacheManager entityCacheManager;
+
+    @Autowired
+    InventoryMapper inventoryMapper;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    LoanSummaryService loanSummaryService;
+
+    @Autowired
+    OutboxService outboxService;
+
+    @Autowired
+    HoldService holdService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    BookLocks locks;
+
+    @Value("${borrow.inventory.default-copies:1}")
+    private int defaultCopies;
+
+    @Value("${borrow.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${hold.expire-batch-size:100}")
+    private int holdExpireBatch;
+
+    private EntityCache<String, Borrow> cache;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        cache = entityCacheManager.create("borrow", BorrowServiceImpl::copy);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     @Override
     public Borrow selectByPrimaryKey(String userid, String bookid) {
-        return borrowMapper.selectByPrimaryKey(userid, bookid);
+        return cache.get(key(userid, bookid), k -> borrowMapper.selectByPrimaryKey(userid, bookid));
     }
 
     @Override
@@ -25,24 +100,360 @@ public class BorrowServiceImpl implements BorrowService {
 
     @Override
     public Borrow insertBorrow(Borrow borrow) {
-        int ret = borrowMapper.insert(borrow);
-        if(ret > 0)
+        // 未归还的记录就是一次借书，与 /borrow/checkout 一样校验并扣减库存
+        if (borrow.getReturntime() == null) {
+            if (userService.selectByPrimaryKey(borrow.getUserid()) == null) {
+                throw new BusinessException(404, "用户不存在");
+            }
+            Borrow saved = underBookLock(borrow.getBookid(),
+                () -> doCheckout(borrow.getUserid(), borrow.getBookid(), borrow.getBorrowtime()));
+            loanSummaryService.refresh(List.of(borrow.getUserid()));
+            cache.invalidate(key(borrow.getUserid(), borrow.getBookid()));
+            countCache.invalidate("borrow");
+            return saved;
+        }
+        // 补录已归还的历史记录，不占用库存
+        int ret = transactionTemplate.execute(status -> {
+            int n = borrowMapper.insert(borrow);
+            loanSummaryService.recordChange(null, borrow);
+            outboxService.append(new BorrowEvent(BorrowEvent.RECORDED, borrow.getUserid(), borrow.getBookid(), null));
+            return n;
+        });
+        if(ret > 0) {
+            loanSummaryService.refresh(List.of(borrow.getUserid()));
+            countCache.invalidate("borrow");
             return borrow;
+        }
         else
             return null;
     }
 
     @Override
     public Borrow updateByPrimaryKey(Borrow borrow) {
-        int ret = borrowMapper.updateByPrimaryKey(borrow);
-        if(ret > 0)
+        int ret = underBookLock(borrow.getBookid(), () -> {
+            Borrow before = borrowMapper.selectForUpdate(borrow.getUserid(), borrow.getBookid());
+            if (before == null) {
+                return 0;
+            }
+            if (before.getReturntime() != null && borrow.getReturntime() == null) {
+                throw new BusinessException(400, "已归还的借阅不能改回未归还，请重新借书");
+            }
+            int n = borrowMapper.updateByPrimaryKey(borrow);
+            if (n > 0) {
+                if (before.getReturntime() == null && borrow.getReturntime() != null) {
+                    // 修改时填写了归还时间等同于还书，空出的一册交给预约者或放回可借池
+                    release(borrow.getBookid());
+                    outboxService.append(new BorrowEvent(BorrowEvent.RETURNED, borrow.getUserid(), borrow.getBookid(), null));
+                }
+                // 与罚款任务一致，只在罚款从无到有时发事件，金额按分
+                long previous = LoanSummaryDelta.cents(before.getPenalsum());
+                long penalty = LoanSummaryDelta.cents(borrow.getPenalsum());
+                if (previous == 0 && penalty > 0) {
+                    outboxService.append(new BorrowEvent(BorrowEvent.FINED, borrow.getUserid(), borrow.getBookid(), penalty));
+                }
+                loanSummaryService.recordChange(before, borrow);
+            }
+            return n;
+        });
+        cache.invalidate(key(borrow.getUserid(), borrow.getBookid()));
+        if(ret > 0) {
+            loanSummaryService.refresh(List.of(borrow.getUserid()));
+            // 更新可能改变关键字匹配结果，同样使总数缓存失效
+            countCache.invalidate("borrow");
             return borrow;
+        }
         else
             return null;
     }
 
     @Override
     public void deleteByPrimaryKey(String userid, String bookid) {
-        borrowMapper.deleteByPrimaryKey(userid, bookid);
+        int ret = underBookLock(bookid, () -> {
+            Borrow before = borrowMapper.selectForUpdate(userid, bookid);
+            int n = borrowMapper.deleteByPrimaryKey(userid, bookid);
+            if (n > 0) {
+                if (before != null && before.getReturntime() == null) {
+                    // 删除未归还的借阅，这一册回到库存
+                    release(bookid);
+                }
+                loanSummaryService.recordChange(before, null);
+                outboxService.append(new BorrowEvent(BorrowEvent.DELETED, userid, bookid, null));
+            }
+            return n;
+        });
+        cache.invalidate(key(userid, bookid));
+        countCache.invalidate("borrow");
+        if (ret > 0) {
+            loanSummaryService.refresh(List.of(userid));
+        }
+    }
+
+    /*
+     * 借还书流程：同一本书的操作先在本进程内按 BookID 分段加锁串行，再在事务里用带版本号的
+     * 条件更新修改库存。分段锁避免同一进程内的无谓冲突，版本号保证多实例部署时也不会超借；
+     * 版本冲突时事务回滚并重读重试。不同的书落在不同的锁上，互不阻塞。
+     */
+    @Override
+    public Borrow checkout(String userid, String bookid) {
+        if (userService.selectByPrimaryKey(userid) == null) {
+            throw new BusinessException(404, "用户不存在");
+        }
+        Borrow borrow = underBookLock(bookid, () -> doCheckout(userid, bookid, null));
+        loanSummaryService.refresh(List.of(userid));
+        cache.invalidate(key(userid, bookid));
+        countCache.invalidate("borrow");
+        return borrow;
+    }
+
+    @Override
+    public Borrow returnBook(String userid, String bookid) {
+        Borrow borrow = underBookLock(bookid, () -> doReturn(userid, bookid));
+        loanSummaryService.refresh(List.of(userid));
+        cache.invalidate(key(userid, bookid));
+        countCache.invalidate("borrow");
+        return borrow;
+    }
+
+    @Override
+    public Inventory getInventory(String bookid) {
+        Inventory inventory = inventoryMapper.selectByPrimaryKey(bookid);
+        if (inventory == null) {
+            inventory = underBookLock(bookid, () -> loadInventory(bookid));
+        }
+        return inventory;
+    }
+
+    @Override
+    public Inventory updateCopies(String bookid, int total) {
+        if (total < 0) {
+            throw new BusinessException(400, "总册数不能为负数");
+        }
+        return underBookLock(bookid, () -> {
+            Inventory inventory = loadInventory(bookid);
+            if (inventoryMapper.updateTotal(bookid, total, inventory.getVersion()) == 0) {
+                if (inventory.getAvailable() + total - inventory.getTotal() < 0) {
+                    throw new BusinessException(400, "总册数不能少于已借出的册数");
+                }
+                throw new VersionConflict();
+            }
+            return inventoryMapper.selectByPrimaryKey(bookid);
+        });
+    }
+
+    /*
+     * 预约：书已全部借出时才能排队。还书时可借册数先交给队首的预约者(READY)，不回到可借池，
+     * 预约者借书时直接使用这一册；到期未取或取消时再交给下一位，没有人排队才放回可借池。
+     */
+    @Override
+    public BookHold placeHold(String userid, String bookid) {
+        if (userService.selectByPrimaryKey(userid) == null) {
+            throw new BusinessException(404, "用户不存在");
+        }
+        Borrow existing = borrowMapper.selectByPrimaryKey(userid, bookid);
+        if (existing != null && existing.getReturntime() == null) {
+            throw new BusinessException(400, "该用户已借阅此书且未归还");
+        }
+        if (getInventory(bookid).getAvailable() > 0) {
+            throw new BusinessException(400, "该图书有可借副本，请直接借阅");
+        }
+        BookHold hold = holdService.enqueue(userid, bookid);
+        // 检查库存与入队之间恰好有人还书时，这一册已回到可借池，补做一次交接
+        if (inventoryMapper.selectByPrimaryKey(bookid).getAvailable() > 0) {
+            underBookLock(bookid, () -> {
+                Inventory inventory = loadInventory(bookid);
+                if (inventory.getAvailable() > 0 && holdService.hasWaiting(bookid)) {
+                    if (inventoryMapper.checkout(bookid, inventory.getVersion()) == 0) {
+                        throw new VersionConflict();
+                    }
+                    holdService.handoff(bookid);
+                }
+                return null;
+            });
+        }
+        return hold;
+    }
+
+    @Override
+    public void cancelHold(String userid, String bookid) {
+        boolean cancelled = underBookLock(bookid, () -> {
+            BookHold hold = holdService.cancel(userid, bookid);
+            if (hold != null && BookHold.READY.equals(hold.getStatus())) {
+                release(bookid);
+            }
+            return hold != null;
+        });
+        if (!cancelled) {
+            throw new BusinessException(404, "没有该图书的预约");
+        }
+    }
+
+    // 为预约者保留的书超过取书期限未借走的，交给下一位或放回可借池
+    @Scheduled(fixedDelayString = "${hold.expire-check-ms:60000}")
+    public void expireHolds() {
+        for (BookHold hold : holdService.expired(new Date(), holdExpireBatch)) {
+            underBookLock(hold.getBookid(), () -> {
+                if (holdService.expire(hold)) {
+                    release(hold.getBookid());
+                }
+                return null;
+            });
+        }
+    }
+
+    // 先收集本页出现的用户和图书ID，再用一条 IN 查询同时取用户名和书名，不再逐行查询
+    @Override
+    public List<BorrowView> toViews(List<Borrow> borrows) {
+        Set<String> userids = new LinkedHashSet<>();
+        Set<String> bookids = new LinkedHashSet<>();
+        for (Borrow borrow : borrows) {
+            userids.add(borrow.getUserid());
+            bookids.add(borrow.getBookid());
+        }
+        Map<String, String> usernames = new HashMap<>();
+        Map<String, String> booknames = new HashMap<>();
+        if (!borrows.isEmpty()) {
+            for (IdName row : borrowMapper.selectNames(userids, bookids)) {
+                ("U".equals(row.getKind()) ? usernames : booknames).put(row.getId(), row.getName());
+            }
+        }
+        List<BorrowView> views = new ArrayList<>(borrows.size());
+        for (Borrow borrow : borrows) {
+            BorrowView view = new BorrowView();
+            view.setUserid(borrow.getUserid());
+            view.setUsername(usernames.get(borrow.getUserid()));
+            view.setBookid(borrow.getBookid());
+            view.setBookname(booknames.get(borrow.getBookid()));
+            view.setBorrowtime(borrow.getBorrowtime());
+            view.setReturntime(borrow.getReturntime());
+            view.setPenalsum(borrow.getPenalsum());
+            view.setPayment(borrow.getPayment());
+            views.add(view);
+        }
+        return views;
+    }
+
+    // borrowtime 为null时按当前时间借出，管理员补录时可以指定借书时间
+    private Borrow doCheckout(String userid, String bookid, Date borrowtime) {
+        Inventory inventory = loadInventory(bookid);
+        BookHold ready = holdService.ready(userid, bookid);
+        if (ready == null && inventory.getAvailable() <= 0) {
+            throw new BusinessException(409, "该图书已全部借出，可以预约排队");
+        }
+        Borrow existing = borrowMapper.selectByPrimaryKey(userid, bookid);
+        if (existing != null && existing.getReturntime() == null) {
+            throw new BusinessException(400, "该用户已借阅此书且未归还");
+        }
+        if (existing != null && existing.getPenalsum() != null
+            && existing.getPenalsum().compareTo(existing.getPayment() == null ? BigDecimal.ZERO : existing.getPayment()) > 0) {
+            throw new BusinessException(400, "该书上次借阅的罚款尚未结清");
+        }
+        if (ready != null) {
+            // 为该用户保留的那一册，已不在可借册数里
+            holdService.fulfill(ready);
+        } else {
+            if (inventoryMapper.checkout(bookid, inventory.getVersion()) == 0) {
+                throw new VersionConflict();
+            }
+            // 有可借副本时直接借走，之前的排队作废
+            holdService.cancel(userid, bookid);
+        }
+        Borrow borrow = new Borrow();
+        borrow.setUserid(userid);
+        borrow.setBookid(bookid);
+        borrow.setBorrowtime(borrowtime == null ? new Date() : borrowtime);
+        if (existing == null) {
+            borrowMapper.insert(borrow);
+        } else {
+            // 复用主键行之前先把上一次的借阅转入历史表
+            borrowMapper.archiveReturned(userid, bookid);
+            if (borrowMapper.reopen(borrow) == 0) {
+                throw new VersionConflict();
+            }
+        }
+        loanSummaryService.recordChange(existing, borrow);
+        outboxService.append(new BorrowEvent(BorrowEvent.CHECKED_OUT, userid, bookid, null));
+        return borrow;
+    }
+
+    private Borrow doReturn(String userid, String bookid) {
+        Borrow borrow = borrowMapper.selectByPrimaryKey(userid, bookid);
+        if (borrow == null || borrow.getReturntime() != null) {
+            throw new BusinessException(404, "没有未归还的借阅记录");
+        }
+        Borrow before = copy(borrow);
+        Date now = new Date();
+        if (borrowMapper.markReturned(userid, bookid, now) == 0) {
+            throw new VersionConflict();
+        }
+        release(bookid);
+        borrow.setReturntime(now);
+        loanSummaryService.recordChange(before, borrow);
+        outboxService.append(new BorrowEvent(BorrowEvent.RETURNED, userid, bookid, null));
+        return borrow;
+    }
+
+    // 归还或预约失效空出的一册：有人排队就交给队首，否则放回可借池
+    private void release(String bookid) {
+        Inventory inventory = loadInventory(bookid);
+        // 总册数被调小时可用册数可能已等于总册数，此时这一册不再计入
+        if (inventory.getAvailable() >= inventory.getTotal()) {
+            return;
+        }
+        if (holdService.handoff(bookid) == null && inventoryMapper.checkin(bookid, inventory.getVersion()) == 0) {
+            throw new VersionConflict();
+        }
+    }
+
+    // 库存记录按需建档，老数据首次借还时按默认册数扣除未归还借阅后生成
+    private Inventory loadInventory(String bookid) {
+        Inventory inventory = inventoryMapper.selectByPrimaryKey(bookid);
+        if (inventory == null) {
+            inventoryMapper.insertIfAbsent(bookid, defaultCopies);
+            inventory = inventoryMapper.selectByPrimaryKey(bookid);
+            if (inventory == null) {
+                throw new BusinessException(404, "图书不存在");
+            }
+        }
+        return inventory;
+    }
+
+    private <T> T underBookLock(String bookid, Supplier<T> action) {
+        ReentrantLock lock = locks.get(bookid);
+        lock.lock();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return transactionTemplate.execute(status -> action.get());
+                } catch (VersionConflict e) {
+                    if (attempt >= maxRetries) {
+                        throw new BusinessException(409, "操作冲突，请稍后重试");
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 条件更新未命中，说明其他实例已修改了同一行，回滚后重试
+    private static final class VersionConflict extends RuntimeException {
+        VersionConflict() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static String key(String userid, String bookid) {
+        return userid + "/" + bookid;
+    }
+
+    private static Borrow copy(Borrow source) {
+        Borrow target = new Borrow();
+        target.setUserid(source.getUserid());
+        target.setBookid(source.getBookid());
+        target.setBorrowtime(source.getBorrowtime());
+        target.setReturntime(source.getReturntime());
+        target.setPenalsum(source.getPenalsum());
+        target.setPayment(source.getPayment());
+        return target;
     }
 }
@@ -0,0 +1,369 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.common.TimingWheel;
+import edu.fosu.book.dao.BorrowMapper;
+import edu.fosu.book.dao.JobWatermarkMapper;
+import edu.fosu.book.entity.Borrow;
+import edu.fosu.book.entity.BorrowEvent;
+import edu.fosu.book.service.BorrowEventListener;
+import edu.fosu.book.service.DeadlineService;
+import edu.fosu.book.service.OutboxService;
+import jakarta.annotation.PostConstruct;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 借阅到期提醒与逾期转换。每笔未归还的借阅在分层时间轮上占一个条目，先在到期前 remind-hours
+ * 小时触发 DUE_SOON，再在到期时触发 OVERDUE，事件写入发件箱交给订阅者。
+ * 每个实例启动时用游标把未归还借阅装入时间轮，之后以广播方式订阅借阅事件，按借阅表的当前状态增删条目，
+ * 重复事件无副作用；但只有持有 jobwatermark 租约的实例推进时间轮并发事件，发之前再查一次借阅是否已归还。
+ * 持有者每次推进后把已处理到的时间点与事件在同一事务里写入水位，同时续租，租约已被接手时整批回滚。
+ * 装入时从水位开始计算，停机期间到期或到提醒时间的借阅也装入，由下一次推进补发；
+ * 接手的实例推进时跳过触发时间不晚于水位的条目，前一个持有者已经发过。
+ */
+@Service
+public class DeadlineServiceImpl implements DeadlineService, BorrowEventListener {
+    private static final Logger log = LoggerFactory.getLogger(DeadlineServiceImpl.class);
+    private static final long HOUR = 3_600_000L;
+    private static final byte REMIND = 0;
+    private static final byte DUE = 1;
+    private static final String WATERMARK = "deadline";
+
+    @Autowired
+    BorrowMapper borrowMapper;
+
+    @Autowired
+    SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    OutboxService outboxService;
+
+    @Autowired
+    JobWatermarkMapper watermarkMapper;
+
+    @Value("${deadline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${deadline.tick-ms:60000}")
+    private long tickMillis;
+
+    @Value("${deadline.remind-hours:24}")
+    private long remindHours;
+
+    @Value("${deadline.lease-seconds:180}")
+    private int leaseSeconds;
+
+    @Value("${fine.loan-days:30}")
+    private int loanDays;
+
+    private final Object lock = new Object();
+    private TransactionTemplate transactionTemplate;
+    // 与发件箱批量写入同一事务，执行器类型需一致
+    private SqlSessionTemplate batchTemplate;
+    private JobWatermarkMapper batchWatermarkMapper;
+    private BorrowMapper batchBorrowMapper;
+    private String owner;
+    private TimingWheel wheel;
+    private LoanIndex index;
+    // 按句柄存放的借阅信息：用户、图书、到期时间、下一次要触发的阶段
+    private String[] userids;
+    private String[] bookids;
+    private long[] dueAt;
+    private byte[] stages;
+    private final AtomicLong remindFired = new AtomicLong();
+    private final AtomicLong overdueFired = new AtomicLong();
+    private volatile boolean leader;
+
+    @PostConstruct
+    public void load() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        batchTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        batchWatermarkMapper = batchTemplate.getMapper(JobWatermarkMapper.class);
+        batchBorrowMapper = batchTemplate.getMapper(BorrowMapper.class);
+        String runtime = ManagementFactory.getRuntimeMXBean().getName();
+        owner = (runtime.length() > 55 ? runtime.substring(0, 55) : runtime) + "-" + UUID.randomUUID().toString().substring(0, 8);
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        // 首次启动没有水位，从现在开始；已有水位时从水位开始，停机期间错过的阶段在下一次推进时补发
+        Long watermark = watermarkMapper.selectWatermark(WATERMARK);
+        if (watermark == null) {
+            watermarkMapper.upsert(WATERMARK, start);
+        }
+        long since = watermark == null ? start : Math.min(watermark, start);
+        synchronized (lock) {
+            wheel = new TimingWheel(tickMillis, start, 1024);
+            index = new LoanIndex();
+            userids = new String[wheel.capacity()];
+            bookids = new String[wheel.capacity()];
+            dueAt = new long[wheel.capacity()];
+            stages = new byte[wheel.capacity()];
+            try (SqlSession session = sqlSessionFactory.openSession();
+                 Cursor<Borrow> cursor = session.getMapper(BorrowMapper.class).selectOpenCursor()) {
+                for (Borrow borrow : cursor) {
+                    track(borrow.getUserid(), borrow.getBookid(), borrow.getBorrowtime().getTime(), since);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        log.info("到期时间轮装入{}笔未归还借阅，用时{}ms", wheel.size(), System.currentTimeMillis() - start);
+    }
+
+    // 时间轮在每个实例的内存里，借还事件需要每个实例都收到
+    @Override
+    public boolean isBroadcast() {
+        return true;
+    }
+
+    @Override
+    public void onEvent(BorrowEvent event) {
+        if (!enabled || (!BorrowEvent.CHECKED_OUT.equals(event.getEventtype())
+            && !BorrowEvent.RETURNED.equals(event.getEventtype())
+            && !BorrowEvent.DELETED.equals(event.getEventtype()))) {
+            return;
+        }
+        // 事件只是通知，以借阅表当前状态为准，乱序或重复投递都能收敛
+        Borrow borrow = borrowMapper.selectByPrimaryKey(event.getUserid(), event.getBookid());
+        synchronized (lock) {
+            int handle = index.get(event.getUserid(), event.getBookid());
+            if (handle >= 0) {
+                untrack(handle);
+            }
+            if (borrow != null && borrow.getReturntime() == null && borrow.getBorrowtime() != null) {
+                track(borrow.getUserid(), borrow.getBookid(), borrow.getBorrowtime().getTime(), System.currentTimeMillis());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${deadline.tick-ms:60000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        // 不持有租约时不推进，条目留在轮上，接手后再按水位跳过已由前一个持有者发过的
+        leader = watermarkMapper.claimLease(WATERMARK, owner, leaseSeconds) > 0;
+        if (!leader) {
+            return;
+        }
+        Long stored = watermarkMapper.selectWatermark(WATERMARK);
+        long since = stored == null ? Long.MIN_VALUE : stored;
+        long now = System.currentTimeMillis();
+        // 时间轮按刻度向上取整触发，推进到的刻度边界之前的条目都已触发，之后的都未触发
+        long reached = now / tickMillis * tickMillis;
+        List<Deadline> fired = new ArrayList<>();
+        synchronized (lock) {
+            wheel.advance(now, handle -> {
+                if (stages[handle] == REMIND) {
+                    long remindAt = dueAt[handle] - remindHours * HOUR;
+                    // 停机期间已经到期的只发 OVERDUE
+                    if (remindAt > since && dueAt[handle] > now) {
+                        fired.add(new Deadline(BorrowEvent.DUE_SOON, userids[handle], bookids[handle], dueAt[handle]));
+                    }
+                    stages[handle] = DUE;
+                    wheel.reschedule(handle, dueAt[handle]);
+                } else {
+                    if (dueAt[handle] > since) {
+                        fired.add(new Deadline(BorrowEvent.OVERDUE, userids[handle], bookids[handle], dueAt[handle]));
+                    }
+                    untrack(handle);
+                }
+            });
+        }
+        List<BorrowEvent> events;
+        try {
+            events = transactionTemplate.execute(status -> {
+                // 发之前再查一次借阅表：其他实例处理的还书可能还没广播到本实例
+                List<BorrowEvent> open = new ArrayList<>(fired.size());
+                for (Deadline deadline : fired) {
+                    Borrow borrow = batchBorrowMapper.selectByPrimaryKey(deadline.userid, deadline.bookid);
+                    if (borrow != null && borrow.getReturntime() == null && borrow.getBorrowtime() != null
+                        && borrow.getBorrowtime().getTime() + loanDays * 24 * HOUR == deadline.dueAt) {
+                        open.add(new BorrowEvent(deadline.type, deadline.userid, deadline.bookid, null));
+                    }
+                }
+                outboxService.appendAll(open);
+                batchWatermarkMapper.advance(WATERMARK, owner, reached, leaseSeconds);
+                List<BatchResult> results = batchTemplate.flushStatements();
+                int[] last = results.get(results.size() - 1).getUpdateCounts();
+                if (last[last.length - 1] == 0) {
+                    throw new LeaseLost();
+                }
+                return open;
+            });
+        } catch (LeaseLost e) {
+            // 推进期间租约被接手，本次的事件由接手的实例按水位重新触发
+            leader = false;
+            log.warn("到期时间轮租约已被其他实例接手，本次{}个事件未发送", fired.size());
+            return;
+        }
+        long reminds = events.stream().filter(e -> BorrowEvent.DUE_SOON.equals(e.getEventtype())).count();
+        remindFired.addAndGet(reminds);
+        overdueFired.addAndGet(events.size() - reminds);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("pending", wheel == null ? 0 : wheel.size());
+        }
+        stats.put("leader", leader);
+        stats.put("remindFired", remindFired.get());
+        stats.put("overdueFired", overdueFired.get());
+        return stats;
+    }
+
+    // 到期时间不晚于 since 的不装入；提醒时间不晚于 since 但未到期的直接等到期
+    private void track(String userid, String bookid, long borrowTime, long since) {
+        long due = borrowTime + loanDays * 24 * HOUR;
+        if (due <= since) {
+            return;
+        }
+        long remindAt = due - remindHours * HOUR;
+        byte stage = remindAt > since ? REMIND : DUE;
+        int handle = wheel.schedule(stage == REMIND ? remindAt : due);
+        if (handle >= userids.length) {
+            int capacity = wheel.capacity();
+            userids = Arrays.copyOf(userids, capacity);
+            bookids = Arrays.copyOf(bookids, capacity);
+            dueAt = Arrays.copyOf(dueAt, capacity);
+            stages = Arrays.copyOf(stages, capacity);
+        }
+        userids[handle] = userid;
+        bookids[handle] = bookid;
+        dueAt[handle] = due;
+        stages[handle] = stage;
+        index.put(handle);
+    }
+
+    private void untrack(int handle) {
+        index.remove(handle);
+        wheel.cancel(handle);
+        userids[handle] = null;
+        bookids[handle] = null;
+    }
+
+    private static final class Deadline {
+        final String type;
+        final String userid;
+        final String bookid;
+        final long dueAt;
+
+        Deadline(String type, String userid, String bookid, long dueAt) {
+            this.type = type;
+            this.userid = userid;
+            this.bookid = bookid;
+            this.dueAt = dueAt;
+        }
+    }
+
+    private static final class LeaseLost extends RuntimeException {
+        LeaseLost() {
+            super(null, null, false, false);
+        }
+    }
+
+    // (用户, 图书) -> 句柄 的开放寻址表，只存句柄，键从句柄对应的数组里取
+    private final class LoanIndex {
+        private int[] table = new int[2048];
+        private int size;
+
+        LoanIndex() {
+            Arrays.fill(table, -1);
+        }
+
+        int get(String userid, String bookid) {
+            int mask = table.length - 1;
+            for (int i = hash(userid, bookid) & mask; table[i] >= 0; i = (i + 1) & mask) {
+                int handle = table[i];
+                if (userids[handle].equals(userid) && bookids[handle].equals(bookid)) {
+                    return handle;
+                }
+            }
+            return -1;
+        }
+
+        void put(int handle) {
+            if ((size + 1) * 2 > table.length) {
+                resize();
+            }
+            insert(handle);
+            size++;
+        }
+
+        void remove(int handle) {
+            int mask = table.length - 1;
+            int i = hash(userids[handle], bookids[handle]) & mask;
+            while (table[i] != handle) {
+                if (table[i] < 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = -1;
+            size--;
+            // 线性探测的后移删除：把后面本应落在空位之前的条目挪上来，不留墓碑
+            for (int j = (i + 1) & mask; table[j] >= 0; j = (j + 1) & mask) {
+                int home = hash(userids[table[j]], bookids[table[j]]) & mask;
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    table[i] = table[j];
+                    table[j] = -1;
+                    i = j;
+                }
+            }
+        }
+
+        private void insert(int handle) {
+            int mask = table.length - 1;
+            int i = hash(userids[handle], bookids[handle]) & mask;
+            while (table[i] >= 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = handle;
+        }
+
+        private void resize() {
+            int[] old = table;
+            table = new int[old.length << 1];
+            Arrays.fill(table, -1);
+            for (int handle : old) {
+                if (handle >= 0) {
+                    insert(handle);
+                }
+            }
+        }
+
+        private int hash(String userid, String bookid) {
+            int h = userid.hashCode() * 31 + bookid.hashCode();
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -1,21 +1,69 @@
 package edu.fosu.book.service.impl;
 
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.CountCache;
+import edu.fosu.book.common.DepartTree;
+import edu.fosu.book.common.EntityCache;
+import edu.fosu.book.common.EntityCacheManager;
+import edu.fosu.book.common.VersionRegistry;
+import edu.fosu.book.dao.DepartClosureMapper;
 import edu.fosu.book.dao.DepartMapper;
 import edu.fosu.book.entity.Depart;
 import edu.fosu.book.service.DepartService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * 部门维护。部门行与闭包表在同一事务里写入，提交后从数据库重建部门树快照并整体替换，
+ * 读者拿到的快照不会再变，查询下级、上级、层级都不需要访问数据库。
+ */
 @Service
 public class DepartServiceImpl implements DepartService {
     @Autowired
     DepartMapper departMapper;
 
+    @Autowired
+    DepartClosureMapper departClosureMapper;
+
+    @Autowired
+    CountCache countCache;
+
+    @Autowired
+    EntityCacheManager entityCacheManager;
+
+    @Autowired
+    VersionRegistry versionRegistry;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private EntityCache<String, Depart> cache;
+    private TransactionTemplate transactionTemplate;
+    private volatile DepartTree tree = DepartTree.EMPTY;
+
+    @PostConstruct
+    public void initCache() {
+        cache = entityCacheManager.create("depart", DepartServiceImpl::copy);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        refreshTree();
+        // 其他实例改动部门后，在新 ETag 生效前失效本实例的缓存并重建部门树
+        versionRegistry.onChange("depart", ids -> {
+            ids.forEach(cache::invalidate);
+            countCache.invalidate("depart");
+            refreshTree();
+        });
+    }
+
     @Override
     public Depart selectByPrimaryKey(String id) {
-        return departMapper.selectByPrimaryKey(id);
+        return cache.get(id, departMapper::selectByPrimaryKey);
     }
 
     @Override
@@ -25,24 +73,84 @@ public class DepartServiceImpl implements DepartService {
 
     @Override
     public Depart insertDepart(Depart depart) {
-        int ret = departMapper.insert(depart);
-        if(ret > 0)
+        Integer ret = transactionTemplate.execute(status -> {
+            int rows = departMapper.insert(depart);
+            if (rows > 0) {
+                departClosureMapper.insertNode(depart.getDepartid(), depart.getParentdepartid());
+            }
+            return rows;
+        });
+        if(ret != null && ret > 0) {
+            countCache.invalidate("depart");
+            versionRegistry.bump("depart", depart.getDepartid());
+            refreshTree();
             return depart;
+        }
         else
             return null;
     }
 
     @Override
     public Depart updateByPrimaryKey(Depart depart) {
-        int ret = departMapper.updateByPrimaryKey(depart);
-        if(ret > 0)
+        String parent = depart.getParentdepartid();
+        Integer ret;
+        try {
+            ret = transactionTemplate.execute(status -> {
+                // 以闭包表为准在事务内检查，内存中的部门树可能还没反映其他实例或并发请求的移动
+                if (parent != null && departClosureMapper.selectPathForUpdate(depart.getDepartid(), parent) != null) {
+                    throw new BusinessException(400, "不能把部门移动到自己或自己的下级部门之下");
+                }
+                Depart existing = departMapper.selectByPrimaryKey(depart.getDepartid());
+                int rows = departMapper.updateByPrimaryKey(depart);
+                if (rows > 0 && existing != null && !Objects.equals(existing.getParentdepartid(), parent)) {
+                    // 上级变化时整棵子树跟着移动：先断开与原上级链的路径，再接到新上级链上
+                    departClosureMapper.detachSubtree(depart.getDepartid());
+                    if (parent != null) {
+                        departClosureMapper.attachSubtree(depart.getDepartid(), parent);
+                    }
+                }
+                return rows;
+            });
+        } catch (PessimisticLockingFailureException e) {
+            throw new BusinessException(409, "部门结构正在被同时修改，请重试");
+        }
+        cache.invalidate(depart.getDepartid());
+        if(ret != null && ret > 0) {
+            // 更新可能改变关键字匹配结果，同样使总数缓存失效
+            countCache.invalidate("depart");
+            versionRegistry.bump("depart", depart.getDepartid());
+            refreshTree();
             return depart;
+        }
         else
             return null;
     }
 
     @Override
     public void deleteByPrimaryKey(String id) {
+        // 闭包表中涉及该部门的路径由外键级联删除
         departMapper.deleteByPrimaryKey(id);
+        cache.invalidate(id);
+        countCache.invalidate("depart");
+        versionRegistry.bump("depart", id);
+        refreshTree();
+    }
+
+    @Override
+    public DepartTree getTree() {
+        return tree;
+    }
+
+    // 串行重建，保证后提交的写入不会被先开始的重建结果覆盖
+    private synchronized void refreshTree() {
+        tree = DepartTree.build(departMapper.selectAll());
+    }
+
+    private static Depart copy(Depart source) {
+        Depart target = new Depart();
+        target.setDepartid(source.getDepartid());
+        target.setDepartname(source.getDepartname());
+        target.setParentdepartid(source.getParentdepartid());
+        return target;
     }
 }
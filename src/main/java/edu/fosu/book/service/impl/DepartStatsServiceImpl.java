@@ -0,0 +1,321 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.DepartTree;
+import edu.fosu.book.common.LoanSummaryDelta;
+import edu.fosu.book.common.UserIdPartitioner;
+import edu.fosu.book.dao.DepartStatsMapper;
+import edu.fosu.book.dao.UserMapper;
+import edu.fosu.book.dto.DepartCount;
+import edu.fosu.book.dto.DepartStats;
+import edu.fosu.book.dto.DepartStatsReport;
+import edu.fosu.book.dto.LoanSummary;
+import edu.fosu.book.entity.User;
+import edu.fosu.book.service.DepartService;
+import edu.fosu.book.service.DepartStatsService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 部门借阅统计：在借数、逾期数、欠款(分)。部门以部门树快照中的先序编号为下标，
+ * 本部门计数与含下级的合计各放在一个 long 数组里，每个部门占连续三格。
+ * 用户借阅汇总在内存中变化后把增量交给这里，加到用户所在部门，再沿上级链逐级加到合计上，代价与层数成正比。
+ * 部门树更换时按部门ID把本部门计数搬到新下标，再自底向上重算合计。
+ * 用户所在部门在本实例登记；其他实例新建的用户在收到增量时从 tuser 补登记，其他实例的调动经用户表的改动回调转成 assign。
+ * 校验任务按 UserID 区间并行地从借阅表重新汇总，与增量结果比对后替换。
+ */
+@Service
+public class DepartStatsServiceImpl implements DepartStatsService {
+    private static final Logger log = LoggerFactory.getLogger(DepartStatsServiceImpl.class);
+    private static final int METRICS = 3;
+    private static final int LOOKUP_CHUNK = 1000;
+
+    @Autowired
+    DepartStatsMapper departStatsMapper;
+
+    @Autowired
+    UserMapper userMapper;
+
+    @Autowired
+    DepartService departService;
+
+    @Autowired
+    UserIdPartitioner userIdPartitioner;
+
+    @Value("${depart.stats.verify.enabled:true}")
+    private boolean verifyEnabled;
+
+    @Value("${depart.stats.verify.partitions:16}")
+    private int partitions;
+
+    @Value("${depart.stats.verify.threads:4}")
+    private int threads;
+
+    private final Object lock = new Object();
+    private final AtomicBoolean verifying = new AtomicBoolean();
+    private final Map<String, String> userDeparts = new HashMap<>();
+    private DepartTree tree = DepartTree.EMPTY;
+    private long[] own = new long[0];
+    private long[] total = new long[0];
+    // 每次计数变化加一，校验期间有变化则放弃替换
+    private long version;
+
+    @PostConstruct
+    public void load() {
+        List<User> users = userMapper.selectDepartAssignments();
+        List<DepartCount> counts = departStatsMapper.sumSummaryByDepart();
+        synchronized (lock) {
+            for (User user : users) {
+                userDeparts.put(user.getUserid(), user.getDepartid());
+            }
+            tree = departService.getTree();
+            own = new long[tree.size() * METRICS];
+            for (DepartCount count : counts) {
+                add(own, tree.indexOf(count.getDepartid()), count);
+            }
+            total = rollup(tree, own);
+        }
+    }
+
+    @Override
+    public DepartStats get(String departid) {
+        synchronized (lock) {
+            sync();
+            int index = tree.indexOf(departid);
+            if (index < 0) {
+                return null;
+            }
+            int i = index * METRICS;
+            return new DepartStats(departid, tree.node(departid).getDepartname(),
+                own[i], own[i + 1], BigDecimal.valueOf(own[i + 2], 2),
+                total[i], total[i + 1], BigDecimal.valueOf(total[i + 2], 2));
+        }
+    }
+
+    @Override
+    public void apply(LoanSummaryDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        Map<String, String> loaded = loadMissing(delta.entries().keySet());
+        synchronized (lock) {
+            sync();
+            // 查库期间 assign 已登记的以 assign 为准
+            for (Map.Entry<String, String> entry : loaded.entrySet()) {
+                if (!userDeparts.containsKey(entry.getKey())) {
+                    userDeparts.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (Map.Entry<String, long[]> entry : delta.entries().entrySet()) {
+                addUp(tree.indexOf(userDeparts.get(entry.getKey())), entry.getValue(), 1);
+            }
+            version++;
+        }
+    }
+
+    // 在其他实例新建的用户本实例没有登记部门，从 tuser 补上；没有部门的记为 null，之后不再查库
+    private Map<String, String> loadMissing(Collection<String> userids) {
+        List<String> missing = new ArrayList<>();
+        synchronized (lock) {
+            for (String userid : userids) {
+                if (!userDeparts.containsKey(userid)) {
+                    missing.add(userid);
+                }
+            }
+        }
+        Map<String, String> loaded = new HashMap<>();
+        for (int i = 0; i < missing.size(); i += LOOKUP_CHUNK) {
+            List<String> chunk = missing.subList(i, Math.min(missing.size(), i + LOOKUP_CHUNK));
+            chunk.forEach(userid -> loaded.put(userid, null));
+            for (User user : userMapper.selectDepartsByIds(chunk)) {
+                loaded.put(user.getUserid(), user.getDepartid());
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public void assign(String userid, String departid, LoanSummary current) {
+        long[] counts = {current.getActiveCount(), current.getOverdueCount(),
+            current.getOutstanding().movePointRight(2).longValue()};
+        synchronized (lock) {
+            sync();
+            String previous = userDeparts.put(userid, departid);
+            if (!Objects.equals(previous, departid)) {
+                addUp(tree.indexOf(previous), counts, -1);
+                addUp(tree.indexOf(departid), counts, 1);
+                version++;
+            }
+        }
+    }
+
+    @Scheduled(cron = "${depart.stats.verify.cron:0 30 5 * * SUN}")
+    public void scheduledVerify() {
+        if (!verifyEnabled) {
+            return;
+        }
+        try {
+            DepartStatsReport report = verify();
+            log.info("部门借阅统计校验完成: 部门{}个, 不一致{}个, 已替换{}, 耗时{}ms",
+                report.getDeparts(), report.getMismatched(), report.isApplied(), report.getMillis());
+        } catch (BusinessException e) {
+            log.warn("部门借阅统计校验未执行: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public DepartStatsReport verify() {
+        if (!verifying.compareAndSet(false, true)) {
+            throw new BusinessException(409, "部门借阅统计正在校验");
+        }
+        long start = System.currentTimeMillis();
+        try {
+            DepartTree snapshot;
+            long startVersion;
+            synchronized (lock) {
+                sync();
+                snapshot = tree;
+                startVersion = version;
+            }
+            List<User> users = userMapper.selectDepartAssignments();
+            List<String[]> ranges = userIdPartitioner.split(partitions);
+            List<Callable<long[]>> tasks = new ArrayList<>(ranges.size());
+            for (String[] range : ranges) {
+                tasks.add(() -> {
+                    long[] part = new long[snapshot.size() * METRICS];
+                    for (DepartCount count : departStatsMapper.aggregateRange(range[0], range[1])) {
+                        add(part, snapshot.indexOf(count.getDepartid()), count);
+                    }
+                    return part;
+                });
+            }
+            long[] recomputed = new long[snapshot.size() * METRICS];
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+            try {
+                for (Future<long[]> future : pool.invokeAll(tasks)) {
+                    long[] part = future.get();
+                    for (int i = 0; i < recomputed.length; i++) {
+                        recomputed[i] += part[i];
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("部门借阅统计校验被中断");
+            } catch (ExecutionException e) {
+                throw new BusinessException("部门借阅统计校验失败: " + e.getCause().getMessage());
+            } finally {
+                pool.shutdownNow();
+            }
+            long[] recomputedTotal = rollup(snapshot, recomputed);
+
+            DepartStatsReport report = new DepartStatsReport();
+            report.setPartitions(ranges.size());
+            report.setDeparts(snapshot.size());
+            synchronized (lock) {
+                // 汇总期间有借阅或用户调动写入时，重新汇总的结果与增量计数对不上时刻，不比对也不替换
+                if (tree == snapshot && version == startVersion) {
+                    report.setMismatched(mismatched(recomputed, recomputedTotal));
+                    own = recomputed;
+                    total = recomputedTotal;
+                    userDeparts.clear();
+                    for (User user : users) {
+                        userDeparts.put(user.getUserid(), user.getDepartid());
+                    }
+                    version++;
+                    report.setApplied(true);
+                }
+            }
+            report.setMillis(System.currentTimeMillis() - start);
+            return report;
+        } finally {
+            verifying.set(false);
+        }
+    }
+
+    // 部门树已更换时，把本部门计数按部门ID搬到新快照的下标上，被删除部门的计数丢弃
+    private void sync() {
+        DepartTree current = departService.getTree();
+        if (current == tree) {
+            return;
+        }
+        long[] moved = new long[current.size() * METRICS];
+        for (int i = 0; i < tree.size(); i++) {
+            int j = current.indexOf(tree.idAt(i));
+            if (j >= 0) {
+                System.arraycopy(own, i * METRICS, moved, j * METRICS, METRICS);
+            }
+        }
+        tree = current;
+        own = moved;
+        total = rollup(current, moved);
+    }
+
+    private void addUp(int index, long[] delta, int sign) {
+        if (index < 0) {
+            return;
+        }
+        for (int m = 0; m < METRICS; m++) {
+            own[index * METRICS + m] += sign * delta[m];
+        }
+        for (int p = index; p >= 0; p = tree.parentIndex(p)) {
+            for (int m = 0; m < METRICS; m++) {
+                total[p * METRICS + m] += sign * delta[m];
+            }
+        }
+    }
+
+    private int mismatched(long[] recomputed, long[] recomputedTotal) {
+        int count = 0;
+        for (int i = 0; i < recomputed.length; i += METRICS) {
+            for (int m = 0; m < METRICS; m++) {
+                if (own[i + m] != recomputed[i + m] || total[i + m] != recomputedTotal[i + m]) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void add(long[] counts, int index, DepartCount count) {
+        if (index < 0) {
+            return;
+        }
+        counts[index * METRICS] += count.getActivecount();
+        counts[index * METRICS + 1] += count.getOverduecount();
+        counts[index * METRICS + 2] += count.getOutstandingcents();
+    }
+
+    // 先序编号中上级总在下级之前，倒序扫描一遍即可把每个部门的合计加到上级
+    private static long[] rollup(DepartTree tree, long[] own) {
+        long[] total = own.clone();
+        for (int i = tree.size() - 1; i > 0; i--) {
+            int p = tree.parentIndex(i);
+            if (p >= 0) {
+                for (int m = 0; m < METRICS; m++) {
+                    total[p * METRICS + m] += total[i * METRICS + m];
+                }
+            }
+        }
+        return total;
+    }
+}
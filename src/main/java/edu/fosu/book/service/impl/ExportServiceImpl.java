@@ -0,0 +1,156 @@
+package edu.fosu.book.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.fosu.book.dao.BookMapper;
+import edu.fosu.book.dao.BorrowMapper;
+import edu.fosu.book.dao.DepartMapper;
+import edu.fosu.book.dao.UserMapper;
+import edu.fosu.book.entity.Book;
+import edu.fosu.book.entity.Borrow;
+import edu.fosu.book.entity.Depart;
+import edu.fosu.book.entity.User;
+import edu.fosu.book.service.ExportService;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * 导出逐行读取 MyBatis Cursor（MySQL流式结果集）并直接写入响应流，内存占用与表大小无关。
+ * Cursor 需要在事务内保持 SqlSession 打开，所以每个导出方法都是只读事务。
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+    private static final int FLUSH_EVERY = 1000;
+
+    @Autowired
+    BookMapper bookMapper;
+
+    @Autowired
+    UserMapper userMapper;
+
+    @Autowired
+    DepartMapper departMapper;
+
+    @Autowired
+    BorrowMapper borrowMapper;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBooks(String format, OutputStream out) throws IOException {
+        try (Cursor<Book> cursor = bookMapper.selectAllCursor()) {
+            write(cursor, format, out,
+                new String[] {"BookID", "BookName", "Authors", "Publication", "PublicDate", "Price"},
+                b -> new Object[] {b.getBookid(), b.getBookname(), b.getAuthors(), b.getPublication(),
+                    b.getPublicdate(), b.getPrice()});
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(String format, OutputStream out) throws IOException {
+        // 查询语句本身不包含密码列
+        try (Cursor<User> cursor = userMapper.selectAllForExport()) {
+            write(cursor, format, out,
+                new String[] {"UserID", "DepartID", "UserName", "PhoneNum", "Sex", "Role"},
+                u -> new Object[] {u.getUserid(), u.getDepartid(), u.getUsername(), u.getPhonenum(),
+                    u.getSex(), u.getRole()});
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportDeparts(String format, OutputStream out) throws IOException {
+        try (Cursor<Depart> cursor = departMapper.selectAllCursor()) {
+            write(cursor, format, out,
+                new String[] {"DepartID", "DepartName", "ParentDepartID"},
+                d -> new Object[] {d.getDepartid(), d.getDepartname(), d.getParentdepartid()});
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBorrows(String format, OutputStream out) throws IOException {
+        try (Cursor<Borrow> cursor = borrowMapper.selectAllCursor()) {
+            write(cursor, format, out,
+                new String[] {"UserID", "BookID", "BorrowTime", "ReturnTime", "PenalSum", "Payment"},
+                b -> new Object[] {b.getUserid(), b.getBookid(), b.getBorrowtime(), b.getReturntime(),
+                    b.getPenalsum(), b.getPayment()});
+        }
+    }
+
+    private <T> void write(Cursor<T> cursor, String format, OutputStream out,
+                           String[] header, Function<T, Object[]> columns) throws IOException {
+        if ("csv".equalsIgnoreCase(format)) {
+            writeCsv(cursor, out, header, columns);
+        } else {
+            writeNdjson(cursor, out);
+        }
+    }
+
+    private <T> void writeNdjson(Cursor<T> cursor, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        int rows = 0;
+        for (T row : cursor) {
+            generator.writeObject(row);
+            generator.writeRaw('\n');
+            if (++rows % FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+    }
+
+    private <T> void writeCsv(Cursor<T> cursor, OutputStream out,
+                              String[] header, Function<T, Object[]> columns) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // BOM让Excel按UTF-8识别中文
+        writer.write('\uFEFF');
+        writeCsvLine(writer, header, dateFormat);
+        int rows = 0;
+        for (T row : cursor) {
+            writeCsvLine(writer, columns.apply(row), dateFormat);
+            if (++rows % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values, SimpleDateFormat dateFormat) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            String text = value instanceof Date ? dateFormat.format((Date) value) : value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
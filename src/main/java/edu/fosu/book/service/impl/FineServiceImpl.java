@@ -0,0 +1,344 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.EntityCacheManager;
+import edu.fosu.book.common.LoanSummaryDelta;
+import edu.fosu.book.common.UserIdPartitioner;
+import edu.fosu.book.dao.FineMapper;
+import edu.fosu.book.dto.FineReport;
+import edu.fosu.book.dto.FineRow;
+import edu.fosu.book.entity.BorrowEvent;
+import edu.fosu.book.entity.FineCheckpoint;
+import edu.fosu.book.service.FineService;
+import edu.fosu.book.service.LoanSummaryService;
+import edu.fosu.book.service.OutboxService;
+import jakarta.annotation.PostConstruct;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.sql.Date;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 逾期罚款批量计算。借阅表按 UserID 区间切成若干分区并行处理，每个分区用游标流式读取逾期借阅，
+ * 罚款按“分”用 long 计算，变化的行按 JDBC 批量写回。每写一批在同一事务里更新分区检查点，
+ * 进程中途退出后同一天再次运行会跳过已完成的分区，未完成的分区从检查点之后继续。
+ * 重算结果与已有值相同的行不写回，因此重复处理检查点之后的少量行也不会产生副作用。
+ * 多个实例同时运行时，各分区先用检查点表上的 Owner/LeaseUntil 认领，每写一批续租一次；
+ * 持有者退出或卡住超过 fine.lease-seconds 后其他实例从检查点接手，原持有者之后的写入因续租失败整批回滚。
+ * 写回罚款以读出时的罚款和归还时间为条件，与手工修改并发时不覆盖对方。
+ */
+@Service
+public class FineServiceImpl implements FineService {
+    private static final Logger log = LoggerFactory.getLogger(FineServiceImpl.class);
+
+    @Autowired
+    SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    FineMapper fineMapper;
+
+    @Autowired
+    EntityCacheManager entityCacheManager;
+
+    @Autowired
+    UserIdPartitioner userIdPartitioner;
+
+    @Autowired
+    LoanSummaryService loanSummaryService;
+
+    @Autowired
+    OutboxService outboxService;
+
+    @Value("${fine.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fine.loan-days:30}")
+    private int loanDays;
+
+    @Value("${fine.daily-rate-cents:10}")
+    private long dailyRateCents;
+
+    // Borrow.PenalSum 为 numeric(5,2)，上限 999.99
+    @Value("${fine.max-cents:99999}")
+    private long maxCents;
+
+    @Value("${fine.partitions:16}")
+    private int partitions;
+
+    @Value("${fine.threads:4}")
+    private int threads;
+
+    @Value("${fine.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${fine.checkpoint-retention-days:7}")
+    private int retentionDays;
+
+    @Value("${fine.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private TransactionTemplate transactionTemplate;
+    private SqlSessionTemplate batchTemplate;
+    private FineMapper batchFineMapper;
+    // 本实例在检查点表里的持有者标识
+    private String owner;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        batchTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        batchFineMapper = batchTemplate.getMapper(FineMapper.class);
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        owner = (name.length() > 55 ? name.substring(0, 55) : name) + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Scheduled(cron = "${fine.cron:0 30 2 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            FineReport report = run();
+            log.info("罚款计算完成: 分区{}个(续跑跳过{}个, 其他实例处理{}个), 扫描{}行, 更新{}行, 耗时{}ms",
+                report.getPartitions(), report.getResumed(), report.getSkipped(), report.getScanned(), report.getUpdated(),
+                report.getMillis());
+        } catch (BusinessException e) {
+            log.warn("罚款计算未执行: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public FineReport run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException(409, "罚款计算正在进行中");
+        }
+        long start = System.currentTimeMillis();
+        try {
+            LocalDate runDate = LocalDate.now();
+            fineMapper.deleteCheckpointsBefore(Date.valueOf(runDate.minusDays(retentionDays)));
+            List<FineCheckpoint> checkpoints = plan(runDate);
+            int today = (int) runDate.toEpochDay();
+
+            FineReport report = new FineReport();
+            report.setRunDate(runDate);
+            report.setPartitions(checkpoints.size());
+            List<Callable<long[]>> tasks = new ArrayList<>();
+            for (FineCheckpoint checkpoint : checkpoints) {
+                if (Boolean.TRUE.equals(checkpoint.getDone())) {
+                    report.setResumed(report.getResumed() + 1);
+                } else {
+                    tasks.add(() -> claimAndRun(checkpoint, today));
+                }
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+            try {
+                for (Future<long[]> future : pool.invokeAll(tasks)) {
+                    long[] counts = future.get();
+                    report.setScanned(report.getScanned() + counts[0]);
+                    report.setUpdated(report.getUpdated() + counts[1]);
+                    report.setSkipped(report.getSkipped() + (int) counts[2]);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("罚款计算被中断");
+            } catch (ExecutionException e) {
+                throw new BusinessException("罚款计算失败: " + e.getCause().getMessage());
+            } finally {
+                pool.shutdownNow();
+                // 罚款直接写库，缓存中的借阅记录需要整体失效
+                entityCacheManager.clear("borrow");
+            }
+            report.setMillis(System.currentTimeMillis() - start);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // 同一天已有检查点时沿用原来的分区边界，否则按用户数等分 UserID 区间
+    private List<FineCheckpoint> plan(LocalDate runDate) {
+        Date rundate = Date.valueOf(runDate);
+        List<FineCheckpoint> checkpoints = fineMapper.selectCheckpoints(rundate);
+        if (!checkpoints.isEmpty()) {
+            return checkpoints;
+        }
+        List<String[]> ranges = userIdPartitioner.split(partitions);
+        for (int i = 0; i < ranges.size(); i++) {
+            FineCheckpoint checkpoint = new FineCheckpoint();
+            checkpoint.setRundate(rundate);
+            checkpoint.setPartitionno(i);
+            checkpoint.setLowuserid(ranges.get(i)[0]);
+            checkpoint.setHighuserid(ranges.get(i)[1]);
+            checkpoint.setScanned(0L);
+            checkpoint.setUpdated(0L);
+            checkpoint.setDone(false);
+            checkpoints.add(checkpoint);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> checkpoints.forEach(fineMapper::insertCheckpoint));
+        } catch (DuplicateKeyException e) {
+            // 其他实例同时开始了当天的计算，沿用它写入的分区
+            return fineMapper.selectCheckpoints(rundate);
+        }
+        return checkpoints;
+    }
+
+    // 认领分区后从库里最新的检查点继续；认领不到说明其他实例正在处理。返回 {扫描行数, 更新行数, 是否跳过}
+    private long[] claimAndRun(FineCheckpoint planned, int today) {
+        if (fineMapper.claimCheckpoint(planned.getRundate(), planned.getPartitionno(), owner, leaseSeconds) == 0) {
+            return new long[] {0, 0, 1};
+        }
+        // 接手租约过期的分区时，原持有者可能已推进了检查点
+        FineCheckpoint checkpoint = fineMapper.selectCheckpoint(planned.getRundate(), planned.getPartitionno());
+        checkpoint.setOwner(owner);
+        try {
+            long[] counts = runPartition(checkpoint, today);
+            return new long[] {counts[0], counts[1], 0};
+        } catch (LeaseLost e) {
+            log.warn("罚款分区{}的租约已被其他实例接手，本实例停止处理", checkpoint.getPartitionno());
+            return new long[] {0, 0, 1};
+        }
+    }
+
+    // 返回 {扫描行数, 更新行数}
+    private long[] runPartition(FineCheckpoint checkpoint, int today) {
+        FineRow[] rows = new FineRow[batchSize];
+        long[] cents = new long[batchSize];
+        long baseScanned = checkpoint.getScanned() == null ? 0 : checkpoint.getScanned();
+        long baseUpdated = checkpoint.getUpdated() == null ? 0 : checkpoint.getUpdated();
+        long scanned = 0;
+        long updated = 0;
+        int pending = 0;
+        int sinceFlush = 0;
+        // 读连接独立于写事务，流式结果集读完前不能在同一连接上执行其他语句
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<FineRow> cursor = session.getMapper(FineMapper.class).selectOverdueCursor(checkpoint, loanDays)) {
+            for (FineRow row : cursor) {
+                scanned++;
+                long penalty = penaltyCents(row, today);
+                if (row.getPenalCents() == null || row.getPenalCents() != penalty) {
+                    rows[pending] = row;
+                    cents[pending] = penalty;
+                    pending++;
+                }
+                checkpoint.setLastuserid(row.getUserid());
+                checkpoint.setLastbookid(row.getBookid());
+                if (++sinceFlush >= batchSize) {
+                    updated += flush(checkpoint, rows, cents, pending, baseScanned + scanned, baseUpdated + updated, false);
+                    pending = 0;
+                    sinceFlush = 0;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        updated += flush(checkpoint, rows, cents, pending, baseScanned + scanned, baseUpdated + updated, true);
+        return new long[] {scanned, updated};
+    }
+
+    // 条件写回一批罚款，只有实际写入的行计入借阅汇总和罚款事件；检查点续租失败时整批回滚。返回实际写入行数
+    private int flush(FineCheckpoint checkpoint, FineRow[] rows, long[] cents, int n,
+                      long scanned, long updated, boolean done) {
+        LoanSummaryDelta delta = new LoanSummaryDelta();
+        int written = transactionTemplate.execute(status -> {
+            for (int i = 0; i < n; i++) {
+                batchFineMapper.updatePenalty(rows[i].getUserid(), rows[i].getBookid(), cents[i],
+                    rows[i].getPenalCents(), rows[i].getReturnTime());
+            }
+            int[] counts = updateCounts(batchTemplate.flushStatements(), n);
+            List<BorrowEvent> events = new ArrayList<>();
+            int w = 0;
+            for (int i = 0; i < n; i++) {
+                // 读出之后被手工修改或归还的行没有写入，留给下一次计算
+                if (counts[i] == 0) {
+                    continue;
+                }
+                w++;
+                FineRow row = rows[i];
+                boolean open = row.getReturnDay() == null;
+                long previous = row.getPenalCents() == null ? 0 : row.getPenalCents();
+                delta.add(row.getUserid(), LoanSummaryDelta.contribution(open, previous, row.getPayCents()),
+                    LoanSummaryDelta.contribution(open, cents[i], row.getPayCents()));
+                // 只在首次产生罚款时发事件，逐日累加不重复通知
+                if (previous == 0 && cents[i] > 0) {
+                    events.add(new BorrowEvent(BorrowEvent.FINED, row.getUserid(), row.getBookid(), cents[i]));
+                }
+            }
+            checkpoint.setScanned(scanned);
+            checkpoint.setUpdated(updated + w);
+            checkpoint.setDone(done);
+            loanSummaryService.recordChanges(delta);
+            outboxService.appendAll(events);
+            batchFineMapper.updateCheckpoint(checkpoint, leaseSeconds);
+            List<BatchResult> results = batchTemplate.flushStatements();
+            int[] last = results.get(results.size() - 1).getUpdateCounts();
+            if (last[last.length - 1] == 0) {
+                throw new LeaseLost();
+            }
+            return w;
+        });
+        loanSummaryService.refresh(delta.entries().keySet());
+        return written;
+    }
+
+    // 按提交顺序展开批量语句的影响行数；驱动只返回 SUCCESS_NO_INFO 时视为已写入
+    private static int[] updateCounts(List<BatchResult> results, int n) {
+        int[] counts = new int[n];
+        int i = 0;
+        for (BatchResult result : results) {
+            for (int count : result.getUpdateCounts()) {
+                if (i < n) {
+                    counts[i++] = count == Statement.SUCCESS_NO_INFO ? 1 : count;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private long penaltyCents(FineRow row, int today) {
+        int end = row.getReturnDay() != null ? row.getReturnDay() : today;
+        long overdueDays = end - row.getBorrowDay() - loanDays;
+        if (overdueDays <= 0) {
+            return 0;
+        }
+        return Math.min(overdueDays * dailyRateCents, maxCents);
+    }
+
+    private static final class LeaseLost extends RuntimeException {
+        LeaseLost() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.dao.BookHoldMapper;
+import edu.fosu.book.dto.HoldPosition;
+import edu.fosu.book.entity.BookHold;
+import edu.fosu.book.entity.BorrowEvent;
+import edu.fosu.book.service.HoldService;
+import edu.fosu.book.service.OutboxService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 图书预约队列。预约记录持久化在 bookhold 表，内存中每本书一个 ConcurrentLinkedQueue，
+ * 入队只做一次 putIfAbsent 防重和一次无锁 offer，不同用户同时预约同一本书互不阻塞。
+ * 内存队列只用于查询排队位置；取消等从队列中间摘除的条目先打上 removed 标记，遍历时跳过。
+ * 还书时一律取库里 WAITING 状态的队首（按 HoldID）并加行锁交接，多实例部署时各实例登记的预约按同一顺序轮到。
+ * 数据库状态迁移都带原状态条件，内存状态在事务提交后才更新，回滚重试不会丢失队首。
+ * 内存队列只含本实例登记或启动时载入的预约；内存里查不到时回退到 bookhold 表。
+ */
+@Service
+public class HoldServiceImpl implements HoldService {
+    private static final long HOUR = 3_600_000L;
+
+    @Autowired
+    BookHoldMapper holdMapper;
+
+    @Autowired
+    OutboxService outboxService;
+
+    @Value("${hold.ready-hours:48}")
+    private long readyHours;
+
+    // 图书 -> 排队中的预约，按入队先后
+    private final ConcurrentHashMap<String, ConcurrentLinkedQueue<Entry>> queues = new ConcurrentHashMap<>();
+    // 用户/图书 -> 排队中或待取的预约，同一用户对同一本书只能有一个
+    private final ConcurrentHashMap<String, Entry> active = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        for (BookHold hold : holdMapper.selectActive()) {
+            Entry entry = new Entry(hold);
+            active.put(key(hold.getUserid(), hold.getBookid()), entry);
+            if (BookHold.WAITING.equals(hold.getStatus())) {
+                queue(hold.getBookid()).offer(entry);
+            }
+        }
+    }
+
+    @Override
+    public BookHold enqueue(String userid, String bookid) {
+        BookHold hold = new BookHold();
+        hold.setUserid(userid);
+        hold.setBookid(bookid);
+        hold.setStatus(BookHold.WAITING);
+        hold.setCreatedat(new Date());
+        Entry entry = new Entry(hold);
+        if (active.putIfAbsent(key(userid, bookid), entry) != null) {
+            throw new BusinessException(400, "已预约该图书");
+        }
+        try {
+            holdMapper.insert(hold);
+        } catch (RuntimeException e) {
+            active.remove(key(userid, bookid), entry);
+            throw e;
+        }
+        entry.holdid = hold.getHoldid();
+        ConcurrentLinkedQueue<Entry> queue = queue(bookid);
+        queue.offer(entry);
+        // 入库与入队之间被取消的，入队后再摘掉
+        if (entry.removed) {
+            queue.remove(entry);
+        }
+        return hold;
+    }
+
+    // 入库先于入队，内存队列的先后可能与 HoldID 不一致，交接一律取库里 WAITING 状态的队首并加行锁
+    @Override
+    public BookHold handoff(String bookid) {
+        BookHold head = holdMapper.selectWaitingHead(bookid);
+        if (head == null) {
+            return null;
+        }
+        Date now = new Date();
+        Date expires = new Date(now.getTime() + readyHours * HOUR);
+        if (holdMapper.markReady(head.getHoldid(), now, expires) == 0) {
+            return null;
+        }
+        head.setStatus(BookHold.READY);
+        head.setReadyat(now);
+        head.setExpiresat(expires);
+        outboxService.append(new BorrowEvent(BorrowEvent.HOLD_READY, head.getUserid(), bookid, null));
+        afterCommit(() -> remember(head));
+        return head;
+    }
+
+    @Override
+    public BookHold ready(String userid, String bookid) {
+        Entry entry = active.get(key(userid, bookid));
+        if (entry != null) {
+            return BookHold.READY.equals(entry.status) ? entry.toHold() : null;
+        }
+        BookHold hold = holdMapper.selectActiveByUser(userid, bookid);
+        return hold != null && BookHold.READY.equals(hold.getStatus()) ? hold : null;
+    }
+
+    @Override
+    public void fulfill(BookHold hold) {
+        if (holdMapper.fulfill(hold.getHoldid()) == 0) {
+            throw new BusinessException(409, "预约已失效");
+        }
+        discardAfterCommit(hold);
+    }
+
+    @Override
+    public BookHold cancel(String userid, String bookid) {
+        Entry entry = active.get(key(userid, bookid));
+        if (entry == null) {
+            // 在其他实例登记的预约
+            BookHold hold = holdMapper.selectActiveByUser(userid, bookid);
+            return hold != null && holdMapper.cancel(hold.getHoldid()) > 0 ? hold : null;
+        }
+        if (entry.holdid == null) {
+            return null;
+        }
+        int n = holdMapper.cancel(entry.holdid);
+        afterCommit(() -> discard(entry));
+        return n > 0 ? entry.toHold() : null;
+    }
+
+    @Override
+    public boolean expire(BookHold hold) {
+        int n = holdMapper.expire(hold.getHoldid());
+        discardAfterCommit(hold);
+        return n > 0;
+    }
+
+    @Override
+    public List<BookHold> expired(Date now, int limit) {
+        return holdMapper.selectExpired(now, limit);
+    }
+
+    @Override
+    public boolean hasWaiting(String bookid) {
+        ConcurrentLinkedQueue<Entry> queue = queues.get(bookid);
+        if (queue != null) {
+            for (Entry entry : queue) {
+                if (!entry.removed) {
+                    return true;
+                }
+            }
+        }
+        return holdMapper.selectWaitingHead(bookid) != null;
+    }
+
+    @Override
+    public HoldPosition position(String userid, String bookid) {
+        Entry entry = active.get(key(userid, bookid));
+        if (entry == null) {
+            return durablePosition(userid, bookid);
+        }
+        // 按 HoldID 而不是入队先后计算位置，与交接顺序一致
+        int ahead = 0;
+        int length = 0;
+        Long holdid = entry.holdid;
+        ConcurrentLinkedQueue<Entry> queue = queues.get(bookid);
+        if (queue != null) {
+            for (Entry e : queue) {
+                if (e.removed) {
+                    continue;
+                }
+                if (e != entry && (holdid == null || e.holdid < holdid)) {
+                    ahead++;
+                }
+                length++;
+            }
+        }
+        boolean ready = BookHold.READY.equals(entry.status);
+        return new HoldPosition(bookid, userid, entry.status, ready ? 0 : ahead + 1, length,
+            ready ? entry.expiresat : null);
+    }
+
+    // 在其他实例登记的预约，按库里的 HoldID 先后计算位置
+    private HoldPosition durablePosition(String userid, String bookid) {
+        BookHold hold = holdMapper.selectActiveByUser(userid, bookid);
+        if (hold == null) {
+            throw new BusinessException(404, "没有该图书的预约");
+        }
+        int length = holdMapper.countWaiting(bookid, null);
+        if (BookHold.READY.equals(hold.getStatus())) {
+            return new HoldPosition(bookid, userid, hold.getStatus(), 0, length, hold.getExpiresat());
+        }
+        return new HoldPosition(bookid, userid, hold.getStatus(),
+            holdMapper.countWaiting(bookid, hold.getHoldid()) + 1, length, null);
+    }
+
+    private ConcurrentLinkedQueue<Entry> queue(String bookid) {
+        return queues.computeIfAbsent(bookid, k -> new ConcurrentLinkedQueue<>());
+    }
+
+    // 库里交接成功的预约同步到内存，本实例之后的 ready/position 能看到
+    private void remember(BookHold hold) {
+        Entry entry = active.get(key(hold.getUserid(), hold.getBookid()));
+        if (entry != null && hold.getHoldid().equals(entry.holdid)) {
+            ConcurrentLinkedQueue<Entry> queue = queues.get(hold.getBookid());
+            if (queue != null) {
+                queue.remove(entry);
+            }
+            entry.expiresat = hold.getExpiresat();
+            entry.status = BookHold.READY;
+        } else if (entry == null) {
+            active.putIfAbsent(key(hold.getUserid(), hold.getBookid()), new Entry(hold));
+        }
+    }
+
+    private void discardAfterCommit(BookHold hold) {
+        Entry entry = active.get(key(hold.getUserid(), hold.getBookid()));
+        if (entry != null && hold.getHoldid().equals(entry.holdid)) {
+            afterCommit(() -> discard(entry));
+        }
+    }
+
+    private void discard(Entry entry) {
+        entry.removed = true;
+        active.remove(key(entry.userid, entry.bookid), entry);
+        ConcurrentLinkedQueue<Entry> queue = queues.get(entry.bookid);
+        if (queue != null) {
+            queue.remove(entry);
+        }
+    }
+
+    // 有事务时等提交后再改内存，没有事务时立即执行
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String key(String userid, String bookid) {
+        return userid + "/" + bookid;
+    }
+
+    private static final class Entry {
+        final String userid;
+        final String bookid;
+        final Date createdat;
+        volatile Long holdid;
+        volatile String status;
+        volatile Date expiresat;
+        volatile boolean removed;
+
+        Entry(BookHold hold) {
+            userid = hold.getUserid();
+            bookid = hold.getBookid();
+            createdat = hold.getCreatedat();
+            holdid = hold.getHoldid();
+            status = hold.getStatus();
+            expiresat = hold.getExpiresat();
+        }
+
+        BookHold toHold() {
+            BookHold hold = new BookHold();
+            hold.setHoldid(holdid);
+            hold.setUserid(userid);
+            hold.setBookid(bookid);
+            hold.setStatus(status);
+            hold.setCreatedat(createdat);
+            hold.setExpiresat(expiresat);
+            return hold;
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package edu.fosu.book.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.fosu.book.common.BookLocks;
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.CountCache;
+import edu.fosu.book.common.CsvReader;
+import edu.fosu.book.common.LoanSummaryDelta;
+import edu.fosu.book.common.VersionRegistry;
+import edu.fosu.book.dao.BookMapper;
+import edu.fosu.book.dao.BorrowMapper;
+import edu.fosu.book.dao.InventoryMapper;
+import edu.fosu.book.dto.ImportReport;
+import edu.fosu.book.entity.Book;
+import edu.fosu.book.entity.Borrow;
+import edu.fosu.book.entity.BorrowEvent;
+import edu.fosu.book.service.BookFacetService;
+import edu.fosu.book.service.BookSearchService;
+import edu.fosu.book.service.BookSuggestService;
+import edu.fosu.book.service.ImportService;
+import edu.fosu.book.service.LoanSummaryService;
+import edu.fosu.book.service.OutboxService;
+import jakarta.annotation.PostConstruct;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 批量导入：请求体按流读取（JSON数组或带表头的CSV），逐行校验后按 import.batch-size 分块，
+ * 每块在一个事务里用 BATCH 执行器提交（配合 rewriteBatchedStatements 合并为多行 VALUES）。
+ * 某块提交失败时回滚并逐行重试，把出错的行号和原因写入导入报告。
+ * 未归还的借阅占用库存：整块涉及的图书先按分段锁锁住，在同一事务里扣减可借册数，册数不足时整块回滚逐行重试。
+ */
+@Service
+public class ImportServiceImpl implements ImportService {
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    BookMapper bookMapper;
+
+    @Autowired
+    BorrowMapper borrowMapper;
+
+    @Autowired
+    InventoryMapper inventoryMapper;
+
+    @Autowired
+    BookLocks bookLocks;
+
+    @Autowired
+    CountCache countCache;
+
+    @Autowired
+    BookSearchService bookSearchService;
+
+    @Autowired
+    BookSuggestService bookSuggestService;
+
+    @Autowired
+    BookFacetService bookFacetService;
+
+    @Autowired
+    VersionRegistry versionRegistry;
+
+    @Autowired
+    LoanSummaryService loanSummaryService;
+
+    @Autowired
+    OutboxService outboxService;
+
+    @Value("${import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${borrow.inventory.default-copies:1}")
+    private int defaultCopies;
+
+    private TransactionTemplate transactionTemplate;
+    private SqlSessionTemplate batchTemplate;
+    private BookMapper batchBookMapper;
+    private BorrowMapper batchBorrowMapper;
+    private InventoryMapper batchInventoryMapper;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        batchTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        batchBookMapper = batchTemplate.getMapper(BookMapper.class);
+        batchBorrowMapper = batchTemplate.getMapper(BorrowMapper.class);
+        batchInventoryMapper = batchTemplate.getMapper(InventoryMapper.class);
+    }
+
+    @Override
+    public ImportReport importBooks(InputStream in, boolean csv) throws IOException {
+        return run(in, csv, Book.class, ImportServiceImpl::bookFromCsv, ImportServiceImpl::validateBook,
+            books -> Collections.emptyList(), batchBookMapper::insert, bookMapper::insert, books -> {}, books -> {
+                countCache.invalidate("book");
+                books.forEach(bookSearchService::index);
+                books.forEach(bookSuggestService::index);
+                books.forEach(bookFacetService::index);
+                versionRegistry.bumpAll("book", books.stream().map(Book::getBookid).collect(Collectors.toList()));
+            });
+    }
+
+    @Override
+    public ImportReport importBorrows(InputStream in, boolean csv) throws IOException {
+        return run(in, csv, Borrow.class, ImportServiceImpl::borrowFromCsv, ImportServiceImpl::validateBorrow,
+            this::openLoanLocks, batchBorrowMapper::insert, this::insertBorrow, this::recordLoanSummary, borrows -> {
+                loanSummaryService.refresh(borrows.stream().map(Borrow::getUserid).collect(Collectors.toList()));
+                countCache.invalidate("borrow");
+            });
+    }
+
+    private List<ReentrantLock> openLoanLocks(List<Borrow> borrows) {
+        List<String> bookids = new ArrayList<>();
+        for (Borrow borrow : borrows) {
+            if (borrow.getReturntime() == null) {
+                bookids.add(borrow.getBookid());
+            }
+        }
+        return bookLocks.getAll(bookids);
+    }
+
+    // 整块批量插入所在的事务内，先扣减未归还借阅占用的库存，再按用户汇总后写入借阅汇总表，并写入借出或补录事件
+    private void recordLoanSummary(List<Borrow> borrows) {
+        takeCopies(borrows);
+        LoanSummaryDelta delta = new LoanSummaryDelta();
+        borrows.forEach(b -> delta.add(null, b));
+        loanSummaryService.recordChanges(delta);
+        outboxService.appendAll(borrows.stream()
+            .map(b -> new BorrowEvent(eventType(b), b.getUserid(), b.getBookid(), null))
+            .collect(Collectors.toList()));
+    }
+
+    // 按图书合计未归还的条数，库存记录不存在时先按默认册数建档，再一次扣减；任何一本不足则整块回滚
+    private void takeCopies(List<Borrow> borrows) {
+        Map<String, Integer> open = new TreeMap<>();
+        for (Borrow borrow : borrows) {
+            if (borrow.getReturntime() == null) {
+                open.merge(borrow.getBookid(), 1, Integer::sum);
+            }
+        }
+        if (open.isEmpty()) {
+            return;
+        }
+        open.keySet().forEach(bookid -> batchInventoryMapper.insertIfAbsent(bookid, defaultCopies));
+        open.forEach(batchInventoryMapper::takeCopies);
+        List<BatchResult> results = batchTemplate.flushStatements();
+        int[] counts = results.get(results.size() - 1).getUpdateCounts();
+        int i = 0;
+        for (String bookid : open.keySet()) {
+            if (counts[i++] == 0) {
+                throw new DataIntegrityViolationException("图书" + bookid + "不存在或可借册数不足");
+            }
+        }
+    }
+
+    // 逐行重试时每行单独一个事务，汇总与借阅记录同时提交
+    private void insertBorrow(Borrow borrow) {
+        ReentrantLock lock = bookLocks.get(borrow.getBookid());
+        lock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (borrow.getReturntime() == null) {
+                    inventoryMapper.insertIfAbsent(borrow.getBookid(), defaultCopies);
+                    if (inventoryMapper.takeCopies(borrow.getBookid(), 1) == 0) {
+                        throw new DataIntegrityViolationException("图书不存在或已无可借副本");
+                    }
+                }
+                borrowMapper.insert(borrow);
+                loanSummaryService.recordChange(null, borrow);
+                outboxService.append(new BorrowEvent(eventType(borrow), borrow.getUserid(), borrow.getBookid(), null));
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 只有未归还的借阅算借出，已归还的历史记录发补录事件
+    private static String eventType(Borrow borrow) {
+        return borrow.getReturntime() == null ? BorrowEvent.CHECKED_OUT : BorrowEvent.RECORDED;
+    }
+
+    private interface RowReader<T> {
+        // 返回null表示读完；单行格式错误抛IllegalArgumentException，可以跳过继续
+        T next() throws IOException;
+    }
+
+    private <T> ImportReport run(InputStream in, boolean csv, Class<T> type,
+                                 Function<Function<String, String>, T> fromCsv, Function<T, String> validator,
+                                 Function<List<T>, List<ReentrantLock>> locksOf, Consumer<T> batchInsert, Consumer<T> singleInsert,
+                                 Consumer<List<T>> inTransaction, Consumer<List<T>> afterCommit)
+        throws IOException {
+        ImportReport report = new ImportReport();
+        RowReader<T> reader = csv ? csvReader(in, fromCsv) : jsonReader(in, type);
+        List<T> chunk = new ArrayList<>(batchSize);
+        List<Long> rowNos = new ArrayList<>(batchSize);
+        long rowNo = 0;
+        while (true) {
+            T row;
+            rowNo++;
+            try {
+                row = reader.next();
+            } catch (IllegalArgumentException e) {
+                report.setTotal(rowNo);
+                report.addError(rowNo, e.getMessage());
+                continue;
+            } catch (JsonMappingException e) {
+                // 字段类型不匹配，MappingIterator 会跳过当前对象，可以继续
+                report.setTotal(rowNo);
+                report.addError(rowNo, "数据格式错误: " + e.getOriginalMessage());
+                continue;
+            } catch (JsonProcessingException e) {
+                // JSON结构损坏后无法定位下一行，终止导入
+                report.setTotal(rowNo);
+                report.addError(rowNo, "JSON格式错误: " + e.getOriginalMessage());
+                break;
+            }
+            if (row == null) {
+                break;
+            }
+            report.setTotal(rowNo);
+            String error = validator.apply(row);
+            if (error != null) {
+                report.addError(rowNo, error);
+                continue;
+            }
+            chunk.add(row);
+            rowNos.add(rowNo);
+            if (chunk.size() >= batchSize) {
+                flush(chunk, rowNos, locksOf, batchInsert, singleInsert, inTransaction, afterCommit, report);
+                chunk = new ArrayList<>(batchSize);
+                rowNos = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flush(chunk, rowNos, locksOf, batchInsert, singleInsert, inTransaction, afterCommit, report);
+        }
+        return report;
+    }
+
+    private <T> void flush(List<T> chunk, List<Long> rowNos, Function<List<T>, List<ReentrantLock>> locksOf,
+                           Consumer<T> batchInsert, Consumer<T> singleInsert,
+                           Consumer<List<T>> inTransaction, Consumer<List<T>> afterCommit, ImportReport report) {
+        List<ReentrantLock> locks = locksOf.apply(chunk);
+        boolean committed = false;
+        locks.forEach(ReentrantLock::lock);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                inTransaction.accept(chunk);
+                chunk.forEach(batchInsert);
+            });
+            committed = true;
+        } catch (DataAccessException e) {
+            // 整块已回滚，下面逐行重试以找出失败的行
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+        if (committed) {
+            report.setSucceeded(report.getSucceeded() + chunk.size());
+            afterCommit.accept(chunk);
+            return;
+        }
+        List<T> inserted = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                singleInsert.accept(chunk.get(i));
+                inserted.add(chunk.get(i));
+            } catch (DataAccessException e) {
+                report.addError(rowNos.get(i), rootMessage(e));
+            }
+        }
+        report.setSucceeded(report.getSucceeded() + inserted.size());
+        afterCommit.accept(inserted);
+    }
+
+    private <T> RowReader<T> jsonReader(InputStream in, Class<T> type) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(in);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new BusinessException(400, "请求体必须是JSON数组");
+        }
+        parser.nextToken();
+        MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(parser);
+        return () -> iterator.hasNextValue() ? iterator.nextValue() : null;
+    }
+
+    private <T> RowReader<T> csvReader(InputStream in, Function<Function<String, String>, T> fromCsv) throws IOException {
+        CsvReader csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return () -> null;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return () -> {
+            List<String> record = csv.readRecord();
+            if (record == null) {
+                return null;
+            }
+            return fromCsv.apply(name -> {
+                Integer index = columns.get(name.toLowerCase(Locale.ROOT));
+                if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+                    return null;
+                }
+                return record.get(index);
+            });
+        };
+    }
+
+    private static Book bookFromCsv(Function<String, String> column) {
+        Book book = new Book();
+        book.setBookid(column.apply("BookID"));
+        book.setBookname(column.apply("BookName"));
+        book.setAuthors(column.apply("Authors"));
+        book.setPublication(column.apply("Publication"));
+        book.setPublicdate(parseDate(column.apply("PublicDate")));
+        book.setPrice(parseDecimal(column.apply("Price")));
+        return book;
+    }
+
+    private static Borrow borrowFromCsv(Function<String, String> column) {
+        Borrow borrow = new Borrow();
+        borrow.setUserid(column.apply("UserID"));
+        borrow.setBookid(column.apply("BookID"));
+        borrow.setBorrowtime(parseDate(column.apply("BorrowTime")));
+        borrow.setReturntime(parseDate(column.apply("ReturnTime")));
+        borrow.setPenalsum(parseDecimal(column.apply("PenalSum")));
+        borrow.setPayment(parseDecimal(column.apply("Payment")));
+        return borrow;
+    }
+
+    private static String validateBook(Book book) {
+        if (book.getBookid() == null || book.getBookid().isEmpty()) {
+            return "图书ID不能为空";
+        }
+        if (book.getBookid().length() > 10) {
+            return "图书ID长度不能超过10";
+        }
+        if (tooLong(book.getBookname(), 50) || tooLong(book.getAuthors(), 50) || tooLong(book.getPublication(), 50)) {
+            return "书名、作者、出版社长度不能超过50";
+        }
+        return validateAmount(book.getPrice(), 9999.99, "价格");
+    }
+
+    private static String validateBorrow(Borrow borrow) {
+        if (borrow.getUserid() == null || borrow.getUserid().isEmpty()) {
+            return "用户ID不能为空";
+        }
+        if (borrow.getBookid() == null || borrow.getBookid().isEmpty()) {
+            return "图书ID不能为空";
+        }
+        if (borrow.getUserid().length() > 6 || borrow.getBookid().length() > 10) {
+            return "用户ID或图书ID长度超出限制";
+        }
+        if (borrow.getBorrowtime() != null && borrow.getReturntime() != null
+            && borrow.getReturntime().before(borrow.getBorrowtime())) {
+            return "归还时间不能早于借阅时间";
+        }
+        String error = validateAmount(borrow.getPenalsum(), 999.99, "罚款金额");
+        return error != null ? error : validateAmount(borrow.getPayment(), 999.99, "已付金额");
+    }
+
+    private static String validateAmount(BigDecimal amount, double max, String name) {
+        if (amount != null && (amount.signum() < 0 || amount.compareTo(BigDecimal.valueOf(max)) > 0)) {
+            return name + "超出范围";
+        }
+        return null;
+    }
+
+    private static boolean tooLong(String value, int max) {
+        return value != null && value.length() > max;
+    }
+
+    private static Date parseDate(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            if (text.length() <= 10) {
+                return Date.from(LocalDate.parse(text).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            }
+            return Date.from(LocalDateTime.parse(text, DATE_TIME).atZone(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式错误: " + text);
+        }
+    }
+
+    private static BigDecimal parseDecimal(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("数字格式错误: " + text);
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
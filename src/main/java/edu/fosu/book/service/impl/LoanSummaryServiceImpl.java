@@ -0,0 +1,391 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.LoanSummaryDelta;
+import edu.fosu.book.common.UserIdPartitioner;
+import edu.fosu.book.dao.UserLoanSummaryMapper;
+import edu.fosu.book.dto.LoanSummary;
+import edu.fosu.book.dto.RepairReport;
+import edu.fosu.book.entity.Borrow;
+import edu.fosu.book.entity.UserLoanSummary;
+import edu.fosu.book.service.DepartStatsService;
+import edu.fosu.book.service.LoanSummaryService;
+import jakarta.annotation.PostConstruct;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 用户借阅汇总：在借数、逾期数、欠款。汇总表随借阅写操作在同一事务内按增量更新，
+ * 内存中用开放寻址表保存各用户的原始类型计数。
+ * 内存不直接累加增量，而是在事务提交后从汇总表重读受影响的用户，与提交顺序无关。
+ * 多实例部署时其他实例的写入不经过本实例：单个用户的查询按主键从汇总表读取并校正内存，
+ * 另有定时任务按 UpdatedAt 增量拉取汇总表的变化，部门借阅统计随之收敛。
+ * 修复任务按 UserID 区间并行地从借阅表重新汇总，覆盖汇总表和内存。
+ * 内存中各用户计数的实际变化量转交部门借阅统计，沿部门层级累加。
+ */
+@Service
+public class LoanSummaryServiceImpl implements LoanSummaryService {
+    private static final Logger log = LoggerFactory.getLogger(LoanSummaryServiceImpl.class);
+    private static final int SYNC_BATCH = 1000;
+
+    @Autowired
+    UserLoanSummaryMapper summaryMapper;
+
+    @Autowired
+    SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    UserIdPartitioner userIdPartitioner;
+
+    @Autowired
+    DepartStatsService departStatsService;
+
+    @Value("${summary.repair.enabled:true}")
+    private boolean repairEnabled;
+
+    @Value("${summary.repair.partitions:16}")
+    private int partitions;
+
+    @Value("${summary.repair.threads:4}")
+    private int threads;
+
+    // 每轮从上次水位之前这么久开始重读，覆盖先取得 UpdatedAt、后提交的事务
+    @Value("${summary.sync-overlap-ms:60000}")
+    private long syncOverlapMillis;
+
+    private final SummaryTable table = new SummaryTable();
+    private final AtomicBoolean repairing = new AtomicBoolean();
+    private UserLoanSummaryMapper batchSummaryMapper;
+    private TransactionTemplate transactionTemplate;
+    // 已同步到的最大 UpdatedAt
+    private long syncedUntil;
+
+    @PostConstruct
+    public void init() {
+        batchSummaryMapper = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH).getMapper(UserLoanSummaryMapper.class);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (UserLoanSummary summary : summaryMapper.selectAll()) {
+            table.put(summary, null);
+            if (summary.getUpdatedat() != null) {
+                syncedUntil = Math.max(syncedUntil, summary.getUpdatedat().getTime());
+            }
+        }
+    }
+
+    // 按主键读汇总表，顺带校正内存和部门统计
+    @Override
+    public LoanSummary get(String userid) {
+        UserLoanSummary summary = summaryMapper.selectByPrimaryKey(userid);
+        LoanSummaryDelta changes = new LoanSummaryDelta();
+        if (summary != null) {
+            table.put(summary, changes);
+        } else {
+            table.remove(userid, changes);
+        }
+        departStatsService.apply(changes);
+        return table.get(userid);
+    }
+
+    // 拉取其他实例写入的汇总变化
+    @Scheduled(fixedDelayString = "${summary.sync-ms:5000}")
+    public synchronized void sync() {
+        Date since = new Date(Math.max(0, syncedUntil - syncOverlapMillis));
+        String afterUser = "";
+        LoanSummaryDelta changes = new LoanSummaryDelta();
+        List<UserLoanSummary> rows;
+        do {
+            rows = summaryMapper.selectChangedSince(since, afterUser, SYNC_BATCH);
+            for (UserLoanSummary summary : rows) {
+                table.put(summary, changes);
+                since = summary.getUpdatedat();
+                afterUser = summary.getUserid();
+                syncedUntil = Math.max(syncedUntil, since.getTime());
+            }
+        } while (rows.size() == SYNC_BATCH);
+        departStatsService.apply(changes);
+    }
+
+    @Override
+    public void recordChange(Borrow before, Borrow after) {
+        LoanSummaryDelta delta = new LoanSummaryDelta();
+        delta.add(before, after);
+        write(summaryMapper, delta);
+    }
+
+    @Override
+    public void recordChanges(LoanSummaryDelta delta) {
+        write(batchSummaryMapper, delta);
+    }
+
+    @Override
+    public void refresh(Collection<String> userids) {
+        if (userids.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(new HashSet<>(userids));
+        LoanSummaryDelta changes = new LoanSummaryDelta();
+        for (int from = 0; from < ids.size(); from += 1000) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + 1000));
+            Set<String> missing = new HashSet<>(chunk);
+            for (UserLoanSummary summary : summaryMapper.selectByUserids(chunk)) {
+                table.put(summary, changes);
+                missing.remove(summary.getUserid());
+            }
+            for (String userid : missing) {
+                table.remove(userid, changes);
+            }
+        }
+        departStatsService.apply(changes);
+    }
+
+    @Scheduled(cron = "${summary.repair.cron:0 0 5 * * SUN}")
+    public void scheduledRepair() {
+        if (!repairEnabled) {
+            return;
+        }
+        try {
+            RepairReport report = repair();
+            log.info("借阅汇总重建完成: 分区{}个, 用户{}个, 耗时{}ms", report.getPartitions(), report.getUsers(), report.getMillis());
+        } catch (BusinessException e) {
+            log.warn("借阅汇总重建未执行: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public RepairReport repair() {
+        if (!repairing.compareAndSet(false, true)) {
+            throw new BusinessException(409, "借阅汇总正在重建");
+        }
+        long start = System.currentTimeMillis();
+        try {
+            List<String[]> ranges = userIdPartitioner.split(partitions);
+            List<Callable<Integer>> tasks = new ArrayList<>(ranges.size());
+            for (String[] range : ranges) {
+                tasks.add(() -> repairRange(range[0], range[1]));
+            }
+            RepairReport report = new RepairReport();
+            report.setPartitions(ranges.size());
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+            try {
+                for (Future<Integer> future : pool.invokeAll(tasks)) {
+                    report.setUsers(report.getUsers() + future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("借阅汇总重建被中断");
+            } catch (ExecutionException e) {
+                throw new BusinessException("借阅汇总重建失败: " + e.getCause().getMessage());
+            } finally {
+                pool.shutdownNow();
+            }
+            report.setMillis(System.currentTimeMillis() - start);
+            return report;
+        } finally {
+            repairing.set(false);
+        }
+    }
+
+    // 一个区间在一个事务内删除并重写，提交后替换内存中该区间的全部用户
+    private int repairRange(String low, String high) {
+        List<UserLoanSummary> rows = transactionTemplate.execute(status -> {
+            List<UserLoanSummary> aggregates = summaryMapper.aggregateRange(low, high);
+            summaryMapper.deleteRange(low, high);
+            for (UserLoanSummary summary : aggregates) {
+                summaryMapper.insert(summary);
+            }
+            return aggregates;
+        });
+        LoanSummaryDelta changes = new LoanSummaryDelta();
+        table.replaceRange(low, high, rows, changes);
+        departStatsService.apply(changes);
+        return rows.size();
+    }
+
+    private static void write(UserLoanSummaryMapper mapper, LoanSummaryDelta delta) {
+        for (Map.Entry<String, long[]> entry : delta.entries().entrySet()) {
+            long[] d = entry.getValue();
+            mapper.upsertDelta(entry.getKey(), d[0], d[1], d[2]);
+        }
+    }
+
+    // 开放寻址哈希表：UserID -> 槽位，计数存放在并行的原始类型数组里
+    private static final class SummaryTable {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private String[] keys = new String[1024];
+        private int[] active = new int[1024];
+        private int[] overdue = new int[1024];
+        private long[] cents = new long[1024];
+        private int size;
+        // 删除留下的墓碑数，与 size 一起决定何时重建
+        private int tombstones;
+        private static final String TOMBSTONE = new String("");
+
+        LoanSummary get(String userid) {
+            lock.readLock().lock();
+            try {
+                int slot = find(userid);
+                if (slot < 0) {
+                    return new LoanSummary(userid, 0, 0, BigDecimal.ZERO.setScale(2));
+                }
+                return new LoanSummary(userid, active[slot], overdue[slot], BigDecimal.valueOf(cents[slot], 2));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // changes 非null时记录各用户计数的变化量
+        void put(UserLoanSummary summary, LoanSummaryDelta changes) {
+            lock.writeLock().lock();
+            try {
+                putLocked(summary, changes);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String userid, LoanSummaryDelta changes) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(userid, changes);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void replaceRange(String low, String high, List<UserLoanSummary> rows, LoanSummaryDelta changes) {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < keys.length; i++) {
+                    String key = keys[i];
+                    if (key != null && key != TOMBSTONE
+                        && (low == null || key.compareTo(low) >= 0) && (high == null || key.compareTo(high) < 0)) {
+                        changes.add(key, values(i), new long[3]);
+                        keys[i] = TOMBSTONE;
+                        size--;
+                        tombstones++;
+                    }
+                }
+                for (UserLoanSummary row : rows) {
+                    putLocked(row, changes);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void putLocked(UserLoanSummary summary, LoanSummaryDelta changes) {
+            if ((size + tombstones + 1) * 2 > keys.length) {
+                rehash(size * 4 > keys.length ? keys.length << 1 : keys.length);
+            }
+            String userid = summary.getUserid();
+            int slot = find(userid);
+            long[] before = slot < 0 ? new long[3] : values(slot);
+            if (slot < 0) {
+                slot = insertSlot(userid);
+                keys[slot] = userid;
+                size++;
+            }
+            active[slot] = summary.getActivecount() == null ? 0 : summary.getActivecount();
+            overdue[slot] = summary.getOverduecount() == null ? 0 : summary.getOverduecount();
+            cents[slot] = summary.getOutstandingcents() == null ? 0 : summary.getOutstandingcents();
+            if (changes != null) {
+                changes.add(userid, before, values(slot));
+            }
+        }
+
+        private void removeLocked(String userid, LoanSummaryDelta changes) {
+            int slot = find(userid);
+            if (slot >= 0) {
+                changes.add(userid, values(slot), new long[3]);
+                keys[slot] = TOMBSTONE;
+                size--;
+                tombstones++;
+            }
+        }
+
+        private long[] values(int slot) {
+            return new long[] {active[slot], overdue[slot], cents[slot]};
+        }
+
+        private int find(String userid) {
+            int mask = keys.length - 1;
+            for (int i = hash(userid) & mask; ; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key == null) {
+                    return -1;
+                }
+                if (key != TOMBSTONE && key.equals(userid)) {
+                    return i;
+                }
+            }
+        }
+
+        private int insertSlot(String userid) {
+            int mask = keys.length - 1;
+            for (int i = hash(userid) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == null) {
+                    return i;
+                }
+                if (keys[i] == TOMBSTONE) {
+                    tombstones--;
+                    return i;
+                }
+            }
+        }
+
+        private void rehash(int capacity) {
+            String[] oldKeys = keys;
+            int[] oldActive = active;
+            int[] oldOverdue = overdue;
+            long[] oldCents = cents;
+            keys = new String[capacity];
+            active = new int[capacity];
+            overdue = new int[capacity];
+            cents = new long[capacity];
+            tombstones = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                String key = oldKeys[i];
+                if (key != null && key != TOMBSTONE) {
+                    int slot = insertSlot(key);
+                    keys[slot] = key;
+                    active[slot] = oldActive[i];
+                    overdue[slot] = oldOverdue[i];
+                    cents[slot] = oldCents[i];
+                }
+            }
+        }
+
+        private static int hash(String key) {
+            int h = key.hashCode();
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.dao.BorrowOutboxMapper;
+import edu.fosu.book.dao.OutboxReaderMapper;
+import edu.fosu.book.entity.BorrowEvent;
+import edu.fosu.book.service.BorrowEventListener;
+import edu.fosu.book.service.OutboxService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 借阅事件发件箱。服务层在写借阅记录的同一事务里把事件写入 borrowoutbox，
+ * 后台按 EventID 顺序成批取出，按 UserID 哈希分到固定的单线程通道投递给各订阅者，
+ * 同一用户的事件始终在同一通道内顺序处理，不同用户并行。进程中途退出会重投，因此订阅者需容忍重复事件。
+ * 某个事件处理失败时，同一用户在本批中后续的事件也暂不投递，下一轮从失败的事件重新开始。
+ * <p>
+ * 订阅者分两类。维护本实例内存状态的(广播)需要每个实例都收到全部事件：各实例按自己的 EventID 位置
+ * 不加锁地往后读，自增编号按分配而不是提交顺序出现，跳过的编号在 outbox.gap-timeout-ms 内继续补读；
+ * 已收齐的位置写入 outboxreader，所有存活实例都读过的事件才删除。
+ * 其余订阅者(只投递一次)由某一个实例认领：短事务里用 FOR UPDATE SKIP LOCKED 锁住一批并写上持有者和租约后提交，
+ * 投递时不持有事务，投递完再用一个短事务标记成功的、释放失败的；实例宕机时租约过期后由其他实例重投。
+ * 某用户更早的事件尚未投递时，该用户本批的事件放回，留到下一轮，保持同一用户的先后。
+ */
+@Service
+public class OutboxServiceImpl implements OutboxService {
+    private static final Logger log = LoggerFactory.getLogger(OutboxServiceImpl.class);
+    private static final long HEARTBEAT_MILLIS = 10_000L;
+    private static final int MAX_GAPS = 10_000;
+    private static final int GAP_QUERY_SIZE = 1000;
+
+    @Autowired
+    BorrowOutboxMapper outboxMapper;
+
+    @Autowired
+    OutboxReaderMapper readerMapper;
+
+    @Autowired
+    SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    List<BorrowEventListener> listeners = Collections.emptyList();
+
+    @Value("${outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.lanes:4}")
+    private int laneCount;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.lease-seconds:60}")
+    private int leaseSeconds;
+
+    @Value("${outbox.gap-timeout-ms:60000}")
+    private long gapTimeoutMillis;
+
+    @Value("${outbox.reader-timeout-seconds:300}")
+    private int readerTimeoutSeconds;
+
+    private BorrowOutboxMapper batchOutboxMapper;
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService[] lanes;
+    private String owner;
+    private final List<BorrowEventListener> onceListeners = new ArrayList<>();
+    private final List<BorrowEventListener> broadcastListeners = new ArrayList<>();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long lagMillis;
+
+    // 以下为广播投递的读取位置，只在调度线程里访问
+    private long readUpTo;
+    // 读到时还没出现的编号 -> 第一次发现的时间
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+    // 广播订阅者处理失败或被跳过、下一轮重投的事件，以及各自已失败的次数
+    private final List<BorrowEvent> redeliver = new ArrayList<>();
+    private final Map<Long, Integer> localAttempts = new HashMap<>();
+    private volatile long watermark;
+    private long reportedWatermark = -1;
+    private long reportedAt;
+
+    @PostConstruct
+    public void init() {
+        batchOutboxMapper = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH).getMapper(BorrowOutboxMapper.class);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        String runtime = ManagementFactory.getRuntimeMXBean().getName();
+        owner = (runtime.length() > 55 ? runtime.substring(0, 55) : runtime) + "-" + UUID.randomUUID().toString().substring(0, 8);
+        for (BorrowEventListener listener : listeners) {
+            (listener.isBroadcast() ? broadcastListeners : onceListeners).add(listener);
+        }
+        lanes = new ExecutorService[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "outbox-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (enabled) {
+            // 内存状态在启动时已从业务表加载，广播从当前位置往后读即可
+            readUpTo = outboxMapper.selectMaxEventId();
+            watermark = readUpTo;
+            report();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    @Override
+    public void append(BorrowEvent event) {
+        outboxMapper.insert(event);
+    }
+
+    @Override
+    public void appendAll(List<BorrowEvent> events) {
+        events.forEach(batchOutboxMapper::insert);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:200}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        if (!onceListeners.isEmpty()) {
+            while (dispatchBatch()) {
+                // 整批投递成功且取满时继续取下一批
+            }
+        }
+        while (broadcastBatch()) {
+            // 同上
+        }
+        report();
+    }
+
+    // 认领、投递、结算分开：认领和结算各是一个短事务，投递时不持有事务和行锁，借还写发件箱不会被投递拖住
+    private boolean dispatchBatch() {
+        List<BorrowEvent> claimed = transactionTemplate.execute(status -> claim());
+        if (claimed == null || claimed.isEmpty()) {
+            lagMillis = 0;
+            return false;
+        }
+        lagMillis = System.currentTimeMillis() - claimed.get(0).getCreatedat().getTime();
+        List<BorrowEvent> batch = new ArrayList<>(claimed.size());
+        List<Long> released = new ArrayList<>();
+        inOrder(claimed, batch, released);
+
+        Outcome outcome = deliverAll(batch, onceListeners);
+        if (outcome == null) {
+            // 未结算的认领等租约过期后重新投递
+            return false;
+        }
+        List<Long> done = new ArrayList<>(outcome.done.size());
+        List<Long> retry = new ArrayList<>();
+        for (BorrowEvent event : outcome.done) {
+            done.add(event.getEventid());
+        }
+        for (BorrowEvent event : outcome.skipped) {
+            released.add(event.getEventid());
+        }
+        for (BorrowEvent event : outcome.failed) {
+            if (event.getAttempts() + 1 >= maxAttempts) {
+                drop(event);
+                done.add(event.getEventid());
+            } else {
+                retry.add(event.getEventid());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!done.isEmpty()) {
+                outboxMapper.markDelivered(done);
+            }
+            if (!retry.isEmpty()) {
+                outboxMapper.incrementAttempts(retry, owner);
+            }
+            if (!released.isEmpty()) {
+                outboxMapper.release(released, owner);
+            }
+        });
+        if (outcome.stalled || !retry.isEmpty()) {
+            // 有失败时等下一轮再试，不在本轮反复重投
+            return false;
+        }
+        // 有用户的事件让给了其他实例时也等下一轮，避免立即又认领到同一批
+        return released.isEmpty() && claimed.size() == batchSize;
+    }
+
+    // 锁住一批无人持有的事件并写上租约，事务提交后其他实例不会再认领这些事件
+    private List<BorrowEvent> claim() {
+        List<BorrowEvent> rows = outboxMapper.selectBatch(batchSize);
+        if (!rows.isEmpty()) {
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (BorrowEvent event : rows) {
+                ids.add(event.getEventid());
+            }
+            outboxMapper.claim(ids, owner, leaseSeconds);
+        }
+        return rows;
+    }
+
+    // 某用户更早的事件尚未投递(其他实例正在投递或尚未认领)时，该用户本批的事件放回，保持同一用户的先后
+    private void inOrder(List<BorrowEvent> claimed, List<BorrowEvent> batch, List<Long> released) {
+        Map<String, Long> first = new LinkedHashMap<>();
+        for (BorrowEvent event : claimed) {
+            first.putIfAbsent(event.getUserid(), event.getEventid());
+        }
+        Set<String> behind = new HashSet<>();
+        for (BorrowEvent head : outboxMapper.selectFirstPending(first.keySet())) {
+            if (head.getEventid() < first.get(head.getUserid())) {
+                behind.add(head.getUserid());
+            }
+        }
+        for (BorrowEvent event : claimed) {
+            if (behind.contains(event.getUserid())) {
+                released.add(event.getEventid());
+            } else {
+                batch.add(event);
+            }
+        }
+    }
+
+    // 广播投递一批：上一轮没投成功的、补读到的空缺编号、当前位置之后的新事件，按 EventID 顺序投给本实例
+    private boolean broadcastBatch() {
+        long now = System.currentTimeMillis();
+        List<BorrowEvent> batch = new ArrayList<>(redeliver);
+        redeliver.clear();
+        if (!gaps.isEmpty()) {
+            gaps.values().removeIf(seenAt -> now - seenAt > gapTimeoutMillis);
+            List<Long> ids = new ArrayList<>(Math.min(gaps.size(), GAP_QUERY_SIZE));
+            for (Long id : gaps.keySet()) {
+                if (ids.size() >= GAP_QUERY_SIZE) {
+                    break;
+                }
+                ids.add(id);
+            }
+            if (!ids.isEmpty()) {
+                for (BorrowEvent event : outboxMapper.selectByIds(ids)) {
+                    gaps.remove(event.getEventid());
+                    batch.add(event);
+                }
+            }
+        }
+        List<BorrowEvent> fresh = outboxMapper.selectAfter(readUpTo, batchSize);
+        if (onceListeners.isEmpty()) {
+            lagMillis = fresh.isEmpty() ? 0 : now - fresh.get(0).getCreatedat().getTime();
+        }
+        long expected = readUpTo + 1;
+        for (BorrowEvent event : fresh) {
+            for (long id = expected; id < event.getEventid() && gaps.size() < MAX_GAPS; id++) {
+                gaps.put(id, now);
+            }
+            expected = event.getEventid() + 1;
+        }
+        if (!fresh.isEmpty()) {
+            readUpTo = fresh.get(fresh.size() - 1).getEventid();
+        }
+        batch.addAll(fresh);
+        boolean more = fresh.size() == batchSize;
+        if (!batch.isEmpty() && !broadcastListeners.isEmpty()) {
+            batch.sort(Comparator.comparingLong(BorrowEvent::getEventid));
+            Outcome outcome = deliverAll(batch, broadcastListeners);
+            if (outcome == null) {
+                redeliver.addAll(batch);
+                more = false;
+            } else {
+                for (BorrowEvent event : outcome.done) {
+                    localAttempts.remove(event.getEventid());
+                }
+                for (BorrowEvent event : outcome.failed) {
+                    int attempts = localAttempts.merge(event.getEventid(), 1, Integer::sum);
+                    if (attempts >= maxAttempts) {
+                        drop(event);
+                        localAttempts.remove(event.getEventid());
+                    } else {
+                        redeliver.add(event);
+                    }
+                }
+                redeliver.addAll(outcome.skipped);
+                more &= !outcome.stalled && outcome.failed.isEmpty();
+            }
+        }
+        long position = readUpTo;
+        if (!gaps.isEmpty()) {
+            position = Math.min(position, gaps.firstKey() - 1);
+        }
+        for (BorrowEvent event : redeliver) {
+            position = Math.min(position, event.getEventid() - 1);
+        }
+        watermark = position;
+        return more;
+    }
+
+    // 位置变化时或每隔一段时间上报一次，顺带删除所有存活实例都已读过的事件
+    private void report() {
+        long now = System.currentTimeMillis();
+        if (watermark == reportedWatermark && now - reportedAt < HEARTBEAT_MILLIS) {
+            return;
+        }
+        try {
+            readerMapper.upsert(owner, watermark);
+            reportedWatermark = watermark;
+            reportedAt = now;
+            readerMapper.deleteStale(readerTimeoutSeconds);
+            Long readable = readerMapper.selectMinEventId();
+            if (readable != null) {
+                while (outboxMapper.deleteUpTo(readable, !onceListeners.isEmpty(), batchSize) == batchSize) {
+                    // 分批删除，避免一次锁住太多行
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("发件箱读取位置上报失败: {}", e.getMessage());
+        }
+    }
+
+    private void drop(BorrowEvent event) {
+        // 超过重试次数的事件丢弃，避免一直阻塞该用户后续的事件
+        log.error("借阅事件{}({} {} {})重试{}次仍失败，已丢弃",
+            event.getEventid(), event.getEventtype(), event.getUserid(), event.getBookid(), maxAttempts);
+        dropped.incrementAndGet();
+    }
+
+    // 按用户分通道并行投递并等待全部完成；调度线程被中断时返回null
+    private Outcome deliverAll(List<BorrowEvent> batch, List<BorrowEventListener> targets) {
+        List<List<BorrowEvent>> byLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            byLane.add(new ArrayList<>());
+        }
+        for (BorrowEvent event : batch) {
+            byLane.get(Math.floorMod(event.getUserid().hashCode(), lanes.length)).add(event);
+        }
+        List<Future<LaneResult>> futures = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            List<BorrowEvent> events = byLane.get(i);
+            futures.add(events.isEmpty() ? null : lanes[i].submit(() -> deliver(events, targets)));
+        }
+
+        Outcome outcome = new Outcome();
+        for (int i = 0; i < lanes.length; i++) {
+            if (futures.get(i) == null) {
+                continue;
+            }
+            LaneResult result;
+            try {
+                result = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                log.warn("借阅事件通道{}投递异常", i, e.getCause());
+                outcome.stalled = true;
+                result = new LaneResult();
+                result.skipped.addAll(byLane.get(i));
+            }
+            for (BorrowEvent event : byLane.get(i)) {
+                if (result.skipped.contains(event)) {
+                    outcome.skipped.add(event);
+                } else if (result.failed.contains(event)) {
+                    outcome.failed.add(event);
+                } else {
+                    outcome.done.add(event);
+                }
+            }
+        }
+        return outcome;
+    }
+
+    // 按顺序投递一个通道内的事件；某个用户的事件失败后，该用户本批中之后的事件跳过
+    private LaneResult deliver(List<BorrowEvent> events, List<BorrowEventListener> targets) {
+        Set<String> blocked = new HashSet<>();
+        LaneResult result = new LaneResult();
+        for (BorrowEvent event : events) {
+            if (blocked.contains(event.getUserid())) {
+                result.skipped.add(event);
+                continue;
+            }
+            try {
+                for (BorrowEventListener listener : targets) {
+                    listener.onEvent(event);
+                }
+                delivered.incrementAndGet();
+            } catch (RuntimeException e) {
+                log.warn("借阅事件{}投递失败: {}", event.getEventid(), e.getMessage());
+                failed.incrementAndGet();
+                blocked.add(event.getUserid());
+                result.failed.add(event);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxMapper.countPending());
+        stats.put("lagMillis", lagMillis);
+        stats.put("watermark", watermark);
+        stats.put("delivered", delivered.get());
+        stats.put("failed", failed.get());
+        stats.put("dropped", dropped.get());
+        stats.put("listeners", listeners.size());
+        stats.put("broadcastListeners", broadcastListeners.size());
+        return stats;
+    }
+
+    private static final class LaneResult {
+        final Set<BorrowEvent> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Set<BorrowEvent> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private static final class Outcome {
+        final List<BorrowEvent> done = new ArrayList<>();
+        final List<BorrowEvent> failed = new ArrayList<>();
+        final List<BorrowEvent> skipped = new ArrayList<>();
+        boolean stalled;
+    }
+}
@@ -0,0 +1,120 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.service.PasswordService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BCrypt 计算放在独立的有界线程池中，同时进行的哈希数和排队数都有上限，
+ * 队列满时直接返回429，避免大量登录请求把Tomcat工作线程全部耗在慢哈希上。
+ */
+@Service
+public class PasswordServiceImpl implements PasswordService {
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    private final ThreadPoolExecutor hashPool;
+    private final long timeoutMillis;
+
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordServiceImpl(@Value("${password.hash.threads:4}") int threads,
+                               @Value("${password.hash.queue-size:32}") int queueSize,
+                               @Value("${password.hash.timeout-ms:5000}") long timeoutMillis) {
+        AtomicInteger seq = new AtomicInteger();
+        this.hashPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            r -> {
+                Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (storedPassword == null) {
+            return false;
+        }
+        if (!storedPassword.startsWith("$2a$")) {
+            // 明文密码（兼容旧数据）
+            return storedPassword.equals(rawPassword);
+        }
+        return submit(() -> passwordEncoder.matches(rawPassword, storedPassword));
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = hashPool.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    hashCount.increment();
+                    hashNanos.add(nanos);
+                    maxHashNanos.accumulate(nanos);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusinessException(429, "请求过多，请稍后再试");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BusinessException(429, "请求过多，请稍后再试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("密码校验被中断");
+        } catch (ExecutionException e) {
+            throw new BusinessException("密码处理失败: " + e.getCause().getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        long count = hashCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hashes", count);
+        stats.put("avgHashMillis", count == 0 ? 0.0 : hashNanos.sum() / 1_000_000.0 / count);
+        stats.put("maxHashMillis", maxHashNanos.get() / 1_000_000.0);
+        stats.put("active", hashPool.getActiveCount());
+        stats.put("queueDepth", hashPool.getQueue().size());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashPool.shutdownNow();
+    }
+}
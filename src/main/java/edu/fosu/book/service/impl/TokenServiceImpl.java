@@ -0,0 +1,228 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.dao.TokenRevocationMapper;
+import edu.fosu.book.dto.UserInfo;
+import edu.fosu.book.entity.TokenRevocation;
+import edu.fosu.book.service.TokenService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 无状态登录令牌：base64url(载荷).base64url(HMAC-SHA256签名)。
+ * 载荷为 v1\n用户ID\n角色\n部门ID\n过期时间\n令牌ID\n用户名，校验只需本机密钥，不依赖会话。
+ * 轮换密钥时把旧密钥配置到 auth.token.previous-secret，旧令牌在过期前仍可通过校验。
+ * 注销的令牌ID写入 tokenrevocation 表，本实例立即生效，其他实例每隔 auth.token.revocation-sync-ms
+ * 按 RevokeID 增量拉取到内存后生效；校验只查内存，不访问数据库。吊销记录到期后清理，大小受令牌有效期限制。
+ * token 模式必须配置 auth.token.secret，否则启动失败。
+ */
+@Service
+public class TokenServiceImpl implements TokenService {
+    private static final String VERSION = "v1";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final int SYNC_BATCH = 1000;
+
+    @Autowired
+    TokenRevocationMapper revocationMapper;
+
+    @Value("${auth.mode:session}")
+    private String mode;
+
+    @Value("${auth.token.secret:}")
+    private String secret;
+
+    @Value("${auth.token.previous-secret:}")
+    private String previousSecret;
+
+    @Value("${auth.token.ttl-seconds:7200}")
+    private long ttlSeconds;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    // 已同步到的最大 RevokeID；每轮从上一轮的起点重读，自增ID先分配后提交的记录不会被跳过
+    private long syncedRevokeId;
+    private long previousRevokeId;
+
+    private ThreadLocal<Mac> currentMac;
+    private ThreadLocal<Mac> previousMac;
+
+    @PostConstruct
+    public void init() {
+        byte[] key;
+        if (secret == null || secret.isEmpty()) {
+            if (isTokenMode()) {
+                // 各实例随机生成的密钥互不相同，轮询负载均衡下令牌会被其他实例拒绝
+                throw new IllegalStateException("auth.mode=token 时必须配置 auth.token.secret");
+            }
+            // session 模式不签发令牌，密钥只是占位
+            key = new byte[32];
+            random.nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        currentMac = macFor(key);
+        if (previousSecret != null && !previousSecret.isEmpty()) {
+            previousMac = macFor(previousSecret.getBytes(StandardCharsets.UTF_8));
+        }
+        syncRevocations();
+    }
+
+    @Override
+    public boolean isTokenMode() {
+        return "token".equalsIgnoreCase(mode);
+    }
+
+    @Override
+    public String issue(UserInfo userInfo) {
+        byte[] jti = new byte[12];
+        random.nextBytes(jti);
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = String.join("\n",
+            VERSION,
+            userInfo.getUserid(),
+            nullToEmpty(userInfo.getRole()),
+            nullToEmpty(userInfo.getDepartid()),
+            Long.toString(expiresAt),
+            ENCODER.encodeToString(jti),
+            nullToEmpty(userInfo.getUsername()));
+        String body = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return body + "." + ENCODER.encodeToString(sign(currentMac, body));
+    }
+
+    @Override
+    public UserInfo verify(String token) {
+        String[] fields = parse(token);
+        if (fields == null) {
+            return null;
+        }
+        return new UserInfo(fields[1], fields[6], fields[2], fields[3].isEmpty() ? null : fields[3]);
+    }
+
+    @Override
+    public String refresh(String token) {
+        UserInfo userInfo = verify(token);
+        if (userInfo == null) {
+            return null;
+        }
+        // 换发新令牌后旧令牌立即吊销
+        revoke(token);
+        return issue(userInfo);
+    }
+
+    @Override
+    public void revoke(String token) {
+        String[] fields = parse(token);
+        if (fields == null) {
+            return;
+        }
+        long expiresAt = Long.parseLong(fields[4]);
+        revocationMapper.insert(fields[5], expiresAt);
+        revoked.put(fields[5], expiresAt);
+    }
+
+    // 拉取其他实例新写入的吊销记录，顺带清理已过期的
+    @Scheduled(fixedDelayString = "${auth.token.revocation-sync-ms:5000}")
+    public synchronized void syncRevocations() {
+        if (!isTokenMode()) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        long after = previousRevokeId;
+        previousRevokeId = syncedRevokeId;
+        List<TokenRevocation> batch;
+        do {
+            batch = revocationMapper.selectSince(after, now, SYNC_BATCH);
+            for (TokenRevocation revocation : batch) {
+                revoked.put(revocation.getTokenid(), revocation.getExpiresat());
+                after = revocation.getRevokeid();
+            }
+        } while (batch.size() == SYNC_BATCH);
+        syncedRevokeId = Math.max(syncedRevokeId, after);
+        purgeExpired();
+        revocationMapper.deleteExpired(now, SYNC_BATCH);
+    }
+
+    // 校验签名、版本、过期时间和吊销状态，任一不通过返回null
+    private String[] parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.lastIndexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        String body = token.substring(0, dot);
+        byte[] signature;
+        byte[] payload;
+        try {
+            signature = DECODER.decode(token.substring(dot + 1));
+            payload = DECODER.decode(body);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(signature, sign(currentMac, body))
+            && (previousMac == null || !MessageDigest.isEqual(signature, sign(previousMac, body)))) {
+            return null;
+        }
+
+        String[] fields = new String(payload, StandardCharsets.UTF_8).split("\n", 7);
+        if (fields.length != 7 || !VERSION.equals(fields[0])) {
+            return null;
+        }
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(fields[4]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (expiresAt < System.currentTimeMillis() / 1000 || revoked.containsKey(fields[5])) {
+            return null;
+        }
+        return fields;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis() / 1000;
+        for (Iterator<Long> it = revoked.values().iterator(); it.hasNext(); ) {
+            if (it.next() < now) {
+                it.remove();
+            }
+        }
+    }
+
+    private static byte[] sign(ThreadLocal<Mac> mac, String body) {
+        return mac.get().doFinal(body.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static ThreadLocal<Mac> macFor(byte[] key) {
+        SecretKeySpec spec = new SecretKeySpec(key, "HmacSHA256");
+        return ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(spec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 不可用", e);
+            }
+        });
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,253 @@
+package edu.fosu.book.service.impl;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.common.SpaceSaving;
+import edu.fosu.book.dto.TrendingBook;
+import edu.fosu.book.entity.Book;
+import edu.fosu.book.entity.BorrowEvent;
+import edu.fosu.book.service.BookService;
+import edu.fosu.book.service.BorrowEventListener;
+import edu.fosu.book.service.TrendingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热门图书排行。每个统计窗口是一个按时间分桶的环，每个桶是一个固定容量的 Space-Saving 统计，
+ * 借出事件落入当前时间所在的桶，过期的桶在被复用时清空。查询时合并窗口内各桶的计数取前 N，
+ * 内存只与桶数和桶容量有关，与馆藏数量无关。停机时把各桶写入快照文件，启动时恢复仍在窗口内的桶。
+ * 计数来自发件箱事件，重投的事件会被重复计数，排行只作参考。
+ */
+@Service
+public class TrendingServiceImpl implements TrendingService, BorrowEventListener {
+    private static final Logger log = LoggerFactory.getLogger(TrendingServiceImpl.class);
+    private static final int SNAPSHOT_MAGIC = 0x54524e44;
+    private static final long MINUTE = 60_000L;
+
+    @Autowired
+    BookService bookService;
+
+    @Value("${book.trending.capacity:200}")
+    private int capacity;
+
+    @Value("${book.trending.snapshot-file:trending.snapshot}")
+    private String snapshotFile;
+
+    private final Map<String, Ring> windows = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        windows.put("1h", new Ring(5 * MINUTE, 12, capacity));
+        windows.put("24h", new Ring(60 * MINUTE, 24, capacity));
+        windows.put("7d", new Ring(360 * MINUTE, 28, capacity));
+        loadSnapshot();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saveSnapshot();
+    }
+
+    // 排行在每个实例的内存里，各实例都要收到全部借出事件
+    @Override
+    public boolean isBroadcast() {
+        return true;
+    }
+
+    @Override
+    public void onEvent(BorrowEvent event) {
+        if (!BorrowEvent.CHECKED_OUT.equals(event.getEventtype())) {
+            return;
+        }
+        long time = event.getCreatedat() == null ? System.currentTimeMillis() : event.getCreatedat().getTime();
+        long now = System.currentTimeMillis();
+        for (Ring ring : windows.values()) {
+            ring.add(event.getBookid(), time, now);
+        }
+    }
+
+    @Override
+    public List<TrendingBook> top(String window, int limit) {
+        Ring ring = windows.get(window);
+        if (ring == null) {
+            throw new BusinessException(400, "window 只能是 " + String.join("、", windows.keySet()));
+        }
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        Map<String, long[]> merged = ring.merge(System.currentTimeMillis());
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(merged.entrySet());
+        sorted.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+            ? Long.compare(b.getValue()[0], a.getValue()[0])
+            : a.getKey().compareTo(b.getKey()));
+        List<TrendingBook> result = new ArrayList<>(Math.min(limit, sorted.size()));
+        for (Map.Entry<String, long[]> entry : sorted) {
+            if (result.size() >= limit) {
+                break;
+            }
+            // 已删除的图书不再出现在排行里
+            Book book = bookService.selectByPrimaryKey(entry.getKey());
+            if (book != null) {
+                result.add(new TrendingBook(book.getBookid(), book.getBookname(),
+                    entry.getValue()[0], entry.getValue()[1]));
+            }
+        }
+        return result;
+    }
+
+    private void loadSnapshot() {
+        Path path = Paths.get(snapshotFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                log.warn("热门图书快照{}格式不对，已忽略", path);
+                return;
+            }
+            int windowCount = in.readInt();
+            for (int w = 0; w < windowCount; w++) {
+                String name = in.readUTF();
+                long bucketMillis = in.readLong();
+                int buckets = in.readInt();
+                Ring ring = windows.get(name);
+                // 桶宽变化后旧快照无法对齐，读过即丢弃
+                boolean usable = ring != null && ring.bucketMillis == bucketMillis;
+                for (int b = 0; b < buckets; b++) {
+                    long slot = in.readLong();
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        String bookid = in.readUTF();
+                        long count = in.readLong();
+                        long error = in.readLong();
+                        if (usable) {
+                            ring.restore(slot, bookid, count, error, now);
+                        }
+                    }
+                }
+            }
+            log.info("已从{}恢复热门图书排行", path);
+        } catch (IOException e) {
+            log.warn("读取热门图书快照{}失败: {}", path, e.getMessage());
+        }
+    }
+
+    private void saveSnapshot() {
+        Path path = Paths.get(snapshotFile).toAbsolutePath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(windows.size());
+                for (Map.Entry<String, Ring> entry : windows.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            // 先写临时文件再改名，停机中断时不会留下半个快照
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("写入热门图书快照{}失败: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class Ring {
+        final long bucketMillis;
+        final SpaceSaving[] sketches;
+        // 各桶当前对应的时间片编号(时间 / 桶宽)，-1 表示空桶
+        final long[] slots;
+
+        Ring(long bucketMillis, int buckets, int capacity) {
+            this.bucketMillis = bucketMillis;
+            sketches = new SpaceSaving[buckets];
+            slots = new long[buckets];
+            for (int i = 0; i < buckets; i++) {
+                sketches[i] = new SpaceSaving(capacity);
+                slots[i] = -1;
+            }
+        }
+
+        synchronized void add(String bookid, long time, long now) {
+            SpaceSaving sketch = bucket(Math.min(time, now) / bucketMillis, now);
+            if (sketch != null) {
+                sketch.add(bookid, 1);
+            }
+        }
+
+        synchronized void restore(long slot, String bookid, long count, long error, long now) {
+            SpaceSaving sketch = bucket(slot, now);
+            if (sketch != null) {
+                sketch.restore(bookid, count, error);
+            }
+        }
+
+        // 时间片已滑出窗口时返回null；桶里还是更早的时间片时先清空再复用
+        private SpaceSaving bucket(long slot, long now) {
+            long current = now / bucketMillis;
+            if (slot <= current - sketches.length) {
+                return null;
+            }
+            int i = (int) (slot % sketches.length);
+            if (slots[i] != slot) {
+                sketches[i].clear();
+                slots[i] = slot;
+            }
+            return sketches[i];
+        }
+
+        synchronized Map<String, long[]> merge(long now) {
+            long oldest = now / bucketMillis - sketches.length;
+            Map<String, long[]> merged = new HashMap<>();
+            for (int i = 0; i < sketches.length; i++) {
+                if (slots[i] <= oldest) {
+                    continue;
+                }
+                SpaceSaving sketch = sketches[i];
+                for (int j = 0; j < sketch.size(); j++) {
+                    long[] sum = merged.computeIfAbsent(sketch.key(j), k -> new long[2]);
+                    sum[0] += sketch.count(j);
+                    sum[1] += sketch.error(j);
+                }
+            }
+            return merged;
+        }
+
+        synchronized void write(DataOutputStream out) throws IOException {
+            out.writeLong(bucketMillis);
+            out.writeInt(sketches.length);
+            for (int i = 0; i < sketches.length; i++) {
+                out.writeLong(slots[i]);
+                SpaceSaving sketch = sketches[i];
+                out.writeInt(sketch.size());
+                for (int j = 0; j < sketch.size(); j++) {
+                    out.writeUTF(sketch.key(j));
+                    out.writeLong(sketch.count(j));
+                    out.writeLong(sketch.error(j));
+                }
+            }
+        }
+    }
+}
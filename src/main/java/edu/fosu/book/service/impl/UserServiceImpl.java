@@ -1,21 +1,161 @@
 package edu.fosu.book.service.impl;
 
+import edu.fosu.book.common.BloomFilter;
+import edu.fosu.book.common.CountCache;
+import edu.fosu.book.common.EntityCache;
+import edu.fosu.book.common.EntityCacheManager;
+import edu.fosu.book.common.VersionRegistry;
 import edu.fosu.book.dao.UserMapper;
 import edu.fosu.book.entity.User;
+import edu.fosu.book.service.DepartStatsService;
+import edu.fosu.book.service.LoanSummaryService;
 import edu.fosu.book.service.UserService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class UserServiceImpl implements UserService {
     @Autowired
     UserMapper userMapper;
 
+    @Autowired
+    CountCache countCache;
+
+    @Autowired
+    EntityCacheManager entityCacheManager;
+
+    @Autowired
+    LoanSummaryService loanSummaryService;
+
+    @Autowired
+    DepartStatsService departStatsService;
+
+    @Autowired
+    VersionRegistry versionRegistry;
+
+    @Value("${user.bloom.expected-insertions:100000}")
+    private long expectedUsernames;
+
+    private EntityCache<String, User> cache;
+
+    // 已占用用户名的布隆过滤器，容量用满后按当前用户数的两倍重建
+    private volatile BloomFilter usernameFilter;
+    private final AtomicLong usernameCount = new AtomicLong();
+    private volatile long usernameCapacity;
+    // 重建期间新写入的用户名先记在这里，换上新过滤器前补进去；由 usernameLock 保护
+    private final Object usernameLock = new Object();
+    private List<String> pendingUsernames;
+
+    @PostConstruct
+    public void initCache() {
+        cache = entityCacheManager.create("user", UserServiceImpl::copy);
+        loadUsernames();
+        // 其他实例新建、调动或删除用户后，失效本实例的缓存，并把用户的借阅计数登记到库里的当前部门
+        versionRegistry.onChange("user", ids -> {
+            ids.forEach(cache::invalidate);
+            countCache.invalidate("user");
+            reassign(ids);
+        });
+    }
+
+    private static final int REASSIGN_CHUNK = 1000;
+
+    private void reassign(List<String> ids) {
+        for (int i = 0; i < ids.size(); i += REASSIGN_CHUNK) {
+            List<String> chunk = ids.subList(i, Math.min(ids.size(), i + REASSIGN_CHUNK));
+            Map<String, User> found = new HashMap<>();
+            for (User user : userMapper.selectDepartsByIds(chunk)) {
+                found.put(user.getUserid().trim().toLowerCase(Locale.ROOT), user);
+            }
+            for (String id : chunk) {
+                User user = found.get(id.trim().toLowerCase(Locale.ROOT));
+                String userid = user != null ? user.getUserid() : id;
+                departStatsService.assign(userid, user != null ? user.getDepartid() : null, loanSummaryService.get(userid));
+            }
+        }
+    }
+
+    // 先开始记录再查库：查询看不到的新用户名一定在开始记录之后写入，会出现在待补列表里
+    private synchronized void loadUsernames() {
+        synchronized (usernameLock) {
+            pendingUsernames = new ArrayList<>();
+        }
+        List<String> usernames = userMapper.selectAllUsernames();
+        long capacity = Math.max(expectedUsernames, usernames.size() * 2L);
+        BloomFilter filter = new BloomFilter(capacity, 0.01);
+        for (String username : usernames) {
+            filter.put(normalizeUsername(username));
+        }
+        synchronized (usernameLock) {
+            long count = usernames.size();
+            for (String username : pendingUsernames) {
+                if (filter.put(username)) {
+                    count++;
+                }
+            }
+            pendingUsernames = null;
+            usernameCount.set(count);
+            usernameCapacity = capacity;
+            usernameFilter = filter;
+        }
+    }
+
+    private void rememberUsername(String username) {
+        if (username == null) {
+            return;
+        }
+        String key = normalizeUsername(username);
+        boolean added;
+        synchronized (usernameLock) {
+            // 只有过滤器里原来没有的用户名才计数，改资料时沿用原用户名不会把计数撑大
+            added = usernameFilter.put(key);
+            if (pendingUsernames != null) {
+                pendingUsernames.add(key);
+            }
+        }
+        if (added && usernameCount.incrementAndGet() > usernameCapacity) {
+            rebuildUsernames();
+        }
+    }
+
+    // 多个线程同时发现容量用满时只重建一次
+    private synchronized void rebuildUsernames() {
+        if (usernameCount.get() > usernameCapacity) {
+            loadUsernames();
+        }
+    }
+
+    // 用户名列的排序规则不区分大小写，过滤器也按小写处理
+    private static String normalizeUsername(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean isUsernameAvailable(String username) {
+        // 判定存在时可能误判，按已占用处理；过滤器只含本实例写入的用户名，判定不存在时再经唯一索引确认其他实例没有注册过
+        if (username == null || usernameFilter.mightContain(normalizeUsername(username))) {
+            return false;
+        }
+        User existing = userMapper.selectByUsername(username);
+        if (existing != null) {
+            rememberUsername(existing.getUsername());
+            return false;
+        }
+        return true;
+    }
+
     @Override
     public User selectByPrimaryKey(String id) {
-        return userMapper.selectByPrimaryKey(id);
+        return cache.get(id, userMapper::selectByPrimaryKey);
     }
 
     @Override
@@ -26,8 +166,13 @@ public class UserServiceImpl implements UserService {
     @Override
     public User insertUser(User user) {
         int ret = userMapper.insert(user);
-        if(ret > 0)
+        if(ret > 0) {
+            countCache.invalidate("user");
+            rememberUsername(user.getUsername());
+            departStatsService.assign(user.getUserid(), user.getDepartid(), loanSummaryService.get(user.getUserid()));
+            versionRegistry.bump("user", user.getUserid());
             return user;
+        }
         else
             return null;
     }
@@ -35,8 +180,16 @@ public class UserServiceImpl implements UserService {
     @Override
     public User updateByPrimaryKey(User user) {
         int ret = userMapper.updateByPrimaryKey(user);
-        if(ret > 0)
+        cache.invalidate(user.getUserid());
+        if(ret > 0) {
+            // 更新可能改变关键字匹配结果，同样使总数缓存失效
+            countCache.invalidate("user");
+            rememberUsername(user.getUsername());
+            // 调动部门时把该用户当前的借阅计数从原部门移到新部门
+            departStatsService.assign(user.getUserid(), user.getDepartid(), loanSummaryService.get(user.getUserid()));
+            versionRegistry.bump("user", user.getUserid());
             return user;
+        }
         else
             return null;
     }
@@ -44,5 +197,21 @@ public class UserServiceImpl implements UserService {
     @Override
     public void deleteByPrimaryKey(String id) {
         userMapper.deleteByPrimaryKey(id);
+        cache.invalidate(id);
+        countCache.invalidate("user");
+        departStatsService.assign(id, null, loanSummaryService.get(id));
+        versionRegistry.bump("user", id);
+    }
+
+    private static User copy(User source) {
+        User target = new User();
+        target.setUserid(source.getUserid());
+        target.setDepartid(source.getDepartid());
+        target.setUsername(source.getUsername());
+        target.setPassword(source.getPassword());
+        target.setPhonenum(source.getPhonenum());
+        target.setSex(source.getSex());
+        target.setRole(source.getRole());
+        return target;
     }
 }
@@ -0,0 +1,118 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.dao.BookMapper;
+import edu.fosu.book.dto.PageResult;
+import edu.fosu.book.entity.Book;
+import edu.fosu.book.service.impl.BookSearchServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 100万本书上的倒排索引检索：命中集合与逐行 LIKE '%kw%' 的结果一致（含带空格和只有空格的关键字），
+ * 并输出建索引耗时、每次检索耗时和逐行扫描的耗时。不连数据库，图书数据按固定种子生成。
+ * 运行：mvn test -Dtest=BookSearchBenchmarkTest -Dbenchmark=true（建议 -DargLine=-Xmx4g）
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BookSearchBenchmarkTest {
+    private static final int BOOKS = 1_000_000;
+    private static final int ROUNDS = 20;
+    private static final String[] WORDS = {
+        "java", "spring", "数据", "结构", "算法", "设计", "模式", "网络", "系统", "原理",
+        "python", "database", "计算机", "程序", "编程", "分布式", "操作", "编译", "实践", "入门"
+    };
+    private static final String[] AUTHORS = {"张三", "李四", "王五", "赵六", "Smith", "Knuth", "陈明", "刘洋"};
+    private static final String[] KEYWORDS = {"java", "数据结构", "算法 ", " 设计", "B0012", "knuth", "清华", " ", "模式 入门"};
+
+    @Test
+    void indexMatchesLikeScanOnOneMillionBooks() {
+        List<Book> books = generate();
+        BookSearchServiceImpl service = new BookSearchServiceImpl();
+        ReflectionTestUtils.setField(service, "bookMapper", mapperReturning(books));
+        ReflectionTestUtils.setField(service, "enabled", true);
+
+        long began = System.nanoTime();
+        service.load();
+        System.out.printf("%d 本书建索引 %.0f ms%n", BOOKS, (System.nanoTime() - began) / 1e6);
+
+        for (String keyword : KEYWORDS) {
+            long scanBegan = System.nanoTime();
+            Set<String> expected = likeScan(books, keyword);
+            long scanNanos = System.nanoTime() - scanBegan;
+
+            assertEquals(expected, new HashSet<>(service.searchIds(keyword)), "关键字 [" + keyword + "] 的命中集合与 LIKE 不一致");
+            PageResult<Book> first = service.search(keyword, 1, 10);
+            assertEquals(expected.size(), first.getTotal());
+
+            long searchBegan = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                service.search(keyword, 1, 10);
+            }
+            long searchNanos = (System.nanoTime() - searchBegan) / ROUNDS;
+            System.out.printf("[%s] 命中 %d 本，索引检索 %.2f ms，逐行扫描 %.2f ms%n",
+                keyword, expected.size(), searchNanos / 1e6, scanNanos / 1e6);
+        }
+        // 书名由空格分隔的词组成，只含空格的关键字与 LIKE '% %' 一样有命中
+        assertTrue(service.search(" ", 1, 10).getTotal() > 0);
+    }
+
+    private static List<Book> generate() {
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setBookid(String.format("B%07d", i));
+            int words = 1 + random.nextInt(3);
+            StringBuilder name = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    name.append(' ');
+                }
+                name.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            book.setBookname(name.toString());
+            book.setAuthors(AUTHORS[random.nextInt(AUTHORS.length)]);
+            book.setPublication("出版社" + random.nextInt(50));
+            books.add(book);
+        }
+        return books;
+    }
+
+    // 与 BookMapper 中 LIKE CONCAT('%', #{keyword}, '%') 相同的语义，排序规则不区分大小写
+    private static Set<String> likeScan(List<Book> books, String keyword) {
+        String q = keyword.toLowerCase(Locale.ROOT);
+        Set<String> ids = new HashSet<>();
+        for (Book book : books) {
+            if (contains(book.getBookname(), q) || contains(book.getAuthors(), q)
+                || contains(book.getPublication(), q) || contains(book.getBookid(), q)) {
+                ids.add(book.getBookid());
+            }
+        }
+        return ids;
+    }
+
+    private static boolean contains(String text, String q) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(q);
+    }
+
+    private static BookMapper mapperReturning(List<Book> books) {
+        return (BookMapper) Proxy.newProxyInstance(BookMapper.class.getClassLoader(), new Class<?>[]{BookMapper.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("selectAll")) {
+                    return books;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
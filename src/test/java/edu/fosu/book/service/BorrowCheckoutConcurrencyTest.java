@@ -0,0 +1,105 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.dao.BorrowMapper;
+import edu.fosu.book.dao.InventoryMapper;
+import edu.fosu.book.entity.Borrow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * N 个用户同时借同一本只有 k 册的书：恰好 k 人成功，其余得到 409，
+ * 可借册数归零，未归还的借阅恰好 k 条且分属不同用户。
+ */
+@SpringBootTest(properties = {
+    "fine.enabled=false", "archive.enabled=false", "outbox.enabled=false", "deadline.enabled=false",
+    "summary.repair.enabled=false", "depart.stats.verify.enabled=false"
+})
+class BorrowCheckoutConcurrencyTest {
+    private static final int USERS = 64;
+    private static final int COPIES = 5;
+
+    @Autowired
+    BorrowService borrowService;
+
+    @Autowired
+    BorrowMapper borrowMapper;
+
+    @Autowired
+    InventoryMapper inventoryMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private BorrowFixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new BorrowFixture(jdbcTemplate, USERS);
+        borrowService.updateCopies(fixture.bookid, COPIES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>(USERS);
+        try {
+            for (String userid : fixture.userids) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        borrowService.checkout(userid, fixture.bookid);
+                        return true;
+                    } catch (BusinessException e) {
+                        assertEquals(409, e.getCode(), e.getMessage());
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+            assertEquals(COPIES, succeeded);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, inventoryMapper.selectByPrimaryKey(fixture.bookid).getAvailable());
+        Set<String> borrowers = new HashSet<>();
+        int open = 0;
+        for (Borrow borrow : borrowMapper.selectByBook(fixture.bookid, null, null, USERS + 1)) {
+            if (borrow.getReturntime() == null) {
+                open++;
+                assertTrue(borrowers.add(borrow.getUserid()), "重复的未归还借阅: " + borrow.getUserid());
+            }
+        }
+        assertEquals(COPIES, open);
+    }
+}
@@ -0,0 +1,40 @@
+package edu.fosu.book.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// 并发测试用的临时图书和用户，ID带随机后缀避免与已有数据冲突，测试结束后连同借阅、预约、事件一起删除
+class BorrowFixture {
+    private final JdbcTemplate jdbc;
+    final String bookid;
+    final List<String> userids = new ArrayList<>();
+
+    BorrowFixture(JdbcTemplate jdbc, int users) {
+        this.jdbc = jdbc;
+        String suffix = Integer.toString(10 * 36 * 36 + ThreadLocalRandom.current().nextInt(26 * 36 * 36), 36);
+        bookid = "T" + suffix;
+        jdbc.update("insert into book (BookID, BookName) values (?, ?)", bookid, "并发测试" + suffix);
+        for (int i = 0; i < users; i++) {
+            // 首字符为字母的三位前缀加三位序号，共6位
+            String userid = suffix + String.format("%03d", i);
+            userids.add(userid);
+            jdbc.update("insert into tuser (UserID, UserName) values (?, ?)", userid, "t_" + bookid + "_" + i);
+        }
+    }
+
+    void cleanup() {
+        jdbc.update("delete from borrowoutbox where BookID = ?", bookid);
+        jdbc.update("delete from borrowhistory where BookID = ?", bookid);
+        jdbc.update("delete from borrow where BookID = ?", bookid);
+        jdbc.update("delete from bookhold where BookID = ?", bookid);
+        jdbc.update("delete from inventory where BookID = ?", bookid);
+        for (String userid : userids) {
+            jdbc.update("delete from userloansummary where UserID = ?", userid);
+            jdbc.update("delete from tuser where UserID = ?", userid);
+        }
+        jdbc.update("delete from book where BookID = ?", bookid);
+    }
+}
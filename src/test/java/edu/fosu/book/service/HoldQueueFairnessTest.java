@@ -0,0 +1,146 @@
+package edu.fosu.book.service;
+
+import edu.fosu.book.common.BusinessException;
+import edu.fosu.book.dao.InventoryMapper;
+import edu.fosu.book.dto.HoldPosition;
+import edu.fosu.book.entity.BookHold;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 一本只有一册的书被大量用户同时预约：每个预约都入队，位置从1到N不重不漏，
+ * 之后每次还书都交给排在最前的人，别人借不走，轮完后这一册回到可借池。
+ */
+@SpringBootTest(properties = {
+    "fine.enabled=false", "archive.enabled=false", "outbox.enabled=false", "deadline.enabled=false",
+    "summary.repair.enabled=false", "depart.stats.verify.enabled=false"
+})
+class HoldQueueFairnessTest {
+    private static final int USERS = 200;
+
+    @Autowired
+    BorrowService borrowService;
+
+    @Autowired
+    HoldService holdService;
+
+    @Autowired
+    InventoryMapper inventoryMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private BorrowFixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new BorrowFixture(jdbcTemplate, USERS);
+        borrowService.updateCopies(fixture.bookid, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+    }
+
+    @Test
+    void concurrentHoldsAreServedInQueueOrder() throws Exception {
+        String first = fixture.userids.get(0);
+        borrowService.checkout(first, fixture.bookid);
+
+        List<String> waiting = fixture.userids.subList(1, USERS);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BookHold>> results = new ArrayList<>(waiting.size());
+        long began;
+        try {
+            for (String userid : waiting) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return borrowService.placeHold(userid, fixture.bookid);
+                }));
+            }
+            began = System.nanoTime();
+            start.countDown();
+            for (Future<BookHold> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long enqueueNanos = System.nanoTime() - began;
+
+        assertEquals(waiting.size(), jdbcTemplate.queryForObject(
+            "select count(*) from bookhold where BookID = ? and Status = 'WAITING'", Integer.class, fixture.bookid));
+        String[] order = new String[waiting.size()];
+        for (String userid : waiting) {
+            HoldPosition position = holdService.position(userid, fixture.bookid);
+            assertEquals(waiting.size(), position.getQueueLength());
+            int index = position.getPosition() - 1;
+            assertTrue(index >= 0 && index < order.length && order[index] == null, "排队位置重复或越界: " + userid);
+            order[index] = userid;
+        }
+
+        long handoffBegan = System.nanoTime();
+        String holder = first;
+        for (String next : order) {
+            borrowService.returnBook(holder, fixture.bookid);
+            assertEquals(0, inventoryMapper.selectByPrimaryKey(fixture.bookid).getAvailable());
+            assertEquals(BookHold.READY, holdService.position(next, fixture.bookid).getStatus());
+            // 保留给队首的这一册，其他人借不走
+            try {
+                borrowService.checkout(holder, fixture.bookid);
+                throw new AssertionError("保留的图书被非预约者借走");
+            } catch (BusinessException e) {
+                assertEquals(409, e.getCode(), e.getMessage());
+            }
+            borrowService.checkout(next, fixture.bookid);
+            holder = next;
+        }
+        long handoffNanos = System.nanoTime() - handoffBegan;
+
+        borrowService.returnBook(holder, fixture.bookid);
+        assertEquals(1, inventoryMapper.selectByPrimaryKey(fixture.bookid).getAvailable());
+        assertTrue(!holdService.hasWaiting(fixture.bookid), "队列应已轮空");
+
+        System.out.printf("%d 个并发预约入队 %.1f ms (%.0f 次/秒)，%d 次还书交接 %.1f ms%n",
+            waiting.size(), enqueueNanos / 1e6, waiting.size() * 1e9 / enqueueNanos,
+            order.length, handoffNanos / 1e6);
+    }
+
+    // 模拟其他实例登记的预约：只写库、不在本实例内存里，还书时仍应按 HoldID 交给它
+    @Test
+    void holdsFromOtherInstancesAreHandedOff() {
+        String first = fixture.userids.get(0);
+        String remote = fixture.userids.get(1);
+        borrowService.checkout(first, fixture.bookid);
+        jdbcTemplate.update("insert into bookhold (BookID, UserID, Status, CreatedAt) values (?, ?, 'WAITING', now())",
+            fixture.bookid, remote);
+
+        assertTrue(holdService.hasWaiting(fixture.bookid));
+        assertEquals(1, holdService.position(remote, fixture.bookid).getPosition());
+
+        borrowService.returnBook(first, fixture.bookid);
+        assertEquals(0, inventoryMapper.selectByPrimaryKey(fixture.bookid).getAvailable());
+        assertEquals(BookHold.READY, holdService.position(remote, fixture.bookid).getStatus());
+
+        borrowService.checkout(remote, fixture.bookid);
+        assertEquals(BookHold.FULFILLED, jdbcTemplate.queryForObject(
+            "select Status from bookhold where BookID = ? and UserID = ?", String.class, fixture.bookid, remote));
+    }
+}
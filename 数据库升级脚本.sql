@@ -0,0 +1,238 @@
+/*==============================================================*/
+/* 已有数据库的增量升级脚本，按顺序执行                         */
+/* 新建数据库直接执行 数据库脚本.sql 即可                       */
+/*==============================================================*/
+
+USE book;
+
+/*==============================================================*/
+/* 用户名唯一索引：注册改为直接插入，由唯一索引判重             */
+/*==============================================================*/
+alter table TUser add unique key uk_tuser_username (UserName);
+
+/*==============================================================*/
+/* 馆藏库存：借还书按 BookID 扣减/归还可用册数，Version 用于乐观锁 */
+/*==============================================================*/
+create table Inventory
+(
+   BookID               char(10) not null,
+   Total                int not null default 1,
+   Available            int not null default 1,
+   Version              int not null default 0,
+   primary key (BookID)
+);
+
+alter table Inventory add constraint FK_Inventory foreign key (BookID)
+      references Book (BookID) on delete cascade on update restrict;
+
+insert into Inventory (BookID, Total, Available, Version)
+select b.BookID, 1, GREATEST(1 - (select count(*) from Borrow r where r.BookID = b.BookID and r.ReturnTime is null), 0), 0
+from Book b;
+
+/*==============================================================*/
+/* 逾期罚款批量计算的分区检查点，用于中断后续跑                 */
+/*==============================================================*/
+create table FineCheckpoint
+(
+   RunDate              date not null,
+   PartitionNo          int not null,
+   LowUserID            char(6),
+   HighUserID           char(6),
+   LastUserID           char(6),
+   LastBookID           char(10),
+   Scanned              bigint not null default 0,
+   Updated              bigint not null default 0,
+   Done                 tinyint(1) not null default 0,
+   Owner                varchar(64),
+   LeaseUntil           datetime,
+   primary key (RunDate, PartitionNo)
+);
+
+/*==============================================================*/
+/* 借阅归档历史表，按归还年份分区；新年度前从 pmax 拆出新分区：  */
+/* alter table BorrowHistory reorganize partition pmax into     */
+/*   (partition p2027 values less than (2028),                  */
+/*    partition pmax values less than maxvalue);                */
+/*==============================================================*/
+create table BorrowHistory
+(
+   HistoryID            bigint not null auto_increment,
+   UserID               char(6) not null,
+   BookID               char(10) not null,
+   BorrowTime           datetime,
+   ReturnTime           datetime not null,
+   PenalSum             numeric(5,2),
+   Payment              numeric(5,2),
+   primary key (HistoryID, ReturnTime),
+   key idx_history_user (UserID, BorrowTime),
+   key idx_history_book (BookID)
+)
+partition by range (year(ReturnTime))
+(
+   partition p2023 values less than (2024),
+   partition p2024 values less than (2025),
+   partition p2025 values less than (2026),
+   partition p2026 values less than (2027),
+   partition pmax values less than maxvalue
+);
+
+/*==============================================================*/
+/* 用户借阅汇总：随借阅写操作增量维护；建表后执行一次全量汇总    */
+/*==============================================================*/
+create table UserLoanSummary
+(
+   UserID               char(6) not null,
+   ActiveCount          int not null default 0,
+   OverdueCount         int not null default 0,
+   OutstandingCents     bigint not null default 0,
+   UpdatedAt            datetime(3) not null default current_timestamp(3) on update current_timestamp(3),
+   primary key (UserID),
+   key idx_summary_updated (UpdatedAt, UserID)
+);
+
+insert into UserLoanSummary (UserID, ActiveCount, OverdueCount, OutstandingCents)
+select UserID,
+   SUM(ReturnTime is null),
+   SUM(ReturnTime is null and IFNULL(PenalSum, 0) > 0),
+   SUM(GREATEST(CAST(IFNULL(PenalSum, 0) * 100 AS SIGNED) - CAST(IFNULL(Payment, 0) * 100 AS SIGNED), 0))
+from Borrow
+group by UserID;
+
+/*==============================================================*/
+/* 借阅事件发件箱：与借阅记录同事务写入，所有实例读过后删除      */
+/*==============================================================*/
+create table BorrowOutbox
+(
+   EventID              bigint not null auto_increment,
+   EventType            varchar(20) not null,
+   UserID               char(6) not null,
+   BookID               char(10) not null,
+   Amount               bigint,
+   CreatedAt            datetime not null,
+   Attempts             int not null default 0,
+   Delivered            tinyint(1) not null default 0,
+   Owner                varchar(64),
+   LeaseUntil           datetime,
+   primary key (EventID),
+   key idx_outbox_user (UserID, EventID),
+   key idx_outbox_pending (Delivered, EventID)
+);
+
+/*==============================================================*/
+/* 图书预约队列：WAITING 排队中，READY 已为预约者留出一册        */
+/*==============================================================*/
+create table BookHold
+(
+   HoldID               bigint not null auto_increment,
+   BookID               char(10) not null,
+   UserID               char(6) not null,
+   Status               varchar(10) not null,
+   CreatedAt            datetime not null,
+   ReadyAt              datetime,
+   ExpiresAt            datetime,
+   primary key (HoldID),
+   key idx_hold_book (BookID, Status, HoldID),
+   key idx_hold_user (UserID, BookID, Status),
+   key idx_hold_expires (Status, ExpiresAt)
+);
+
+alter table BookHold add constraint FK_BookHold foreign key (BookID)
+      references Book (BookID) on delete cascade on update restrict;
+
+alter table BookHold add constraint FK_BookHold2 foreign key (UserID)
+      references TUser (UserID) on delete cascade on update restrict;
+
+/*==============================================================*/
+/* 按用户、按图书查询借阅的覆盖索引，借阅时间倒序翻页只读索引    */
+/*==============================================================*/
+alter table Borrow add key idx_borrow_user_time (UserID, BorrowTime, ReturnTime, PenalSum, Payment);
+
+alter table Borrow add key idx_borrow_book_time (BookID, BorrowTime, ReturnTime, PenalSum, Payment);
+
+/*==============================================================*/
+/* 部门闭包表：每对(上级, 下级)一行，部门自身 Depth = 0           */
+/*==============================================================*/
+create table DepartClosure
+(
+   AncestorID           char(4) not null,
+   DescendantID         char(4) not null,
+   Depth                int not null,
+   primary key (AncestorID, DescendantID),
+   key idx_closure_descendant (DescendantID, AncestorID, Depth)
+);
+
+alter table DepartClosure add constraint FK_Closure_Ancestor foreign key (AncestorID)
+      references Depart (DepartID) on delete cascade on update restrict;
+
+alter table DepartClosure add constraint FK_Closure_Descendant foreign key (DescendantID)
+      references Depart (DepartID) on delete cascade on update restrict;
+
+insert into DepartClosure (AncestorID, DescendantID, Depth)
+with recursive paths (AncestorID, DescendantID, Depth) as (
+   select DepartID, DepartID, 0 from Depart
+   union all
+   select d.ParentDepartID, p.DescendantID, p.Depth + 1
+   from paths p
+   join Depart d on d.DepartID = p.AncestorID
+   where d.ParentDepartID is not null and p.Depth < 32
+)
+select AncestorID, DescendantID, min(Depth) from paths group by AncestorID, DescendantID;
+
+/*==============================================================*/
+/* 已注销的登录令牌，token 模式下各实例定期增量同步               */
+/*==============================================================*/
+create table TokenRevocation
+(
+   RevokeID             bigint not null auto_increment,
+   TokenID              char(16) not null,
+   ExpiresAt            bigint not null,
+   primary key (RevokeID),
+   unique key uk_revocation_token (TokenID),
+   key idx_revocation_expires (ExpiresAt)
+);
+
+/*==============================================================*/
+/* 图书/部门读接口 ETag 使用的版本号，Stripe = -1 为整表版本      */
+/*==============================================================*/
+create table EntityVersion
+(
+   TableName            varchar(20) not null,
+   Stripe               int not null,
+   Version              bigint not null,
+   primary key (TableName, Stripe)
+);
+
+/*==============================================================*/
+/* 定时任务已处理到的时间点(毫秒)和执行租约，同一时间只有一个实例执行 */
+/*==============================================================*/
+create table JobWatermark
+(
+   Name                 varchar(30) not null,
+   Watermark            bigint not null,
+   Owner                varchar(64),
+   LeaseUntil           datetime,
+   primary key (Name)
+);
+
+/*==============================================================*/
+/* 各实例已收齐的发件箱事件位置，所有存活实例都读过的事件才删除  */
+/*==============================================================*/
+create table OutboxReader
+(
+   Instance             varchar(64) not null,
+   LastEventID          bigint not null,
+   SeenAt               datetime not null,
+   primary key (Instance)
+);
+
+/*==============================================================*/
+/* 图书/部门每行最后一次改动时的表版本，各实例据此失效缓存和索引  */
+/*==============================================================*/
+create table EntityChange
+(
+   TableName            varchar(20) not null,
+   EntityID             varchar(20) not null,
+   Version              bigint not null,
+   primary key (TableName, EntityID),
+   key idx_change_version (TableName, Version)
+);
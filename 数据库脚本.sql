@@ -8,14 +8,38 @@ CREATE DATABASE IF NOT EXISTS book;
 
 USE book;
 
+drop table if exists Inventory;
+
+drop table if exists BookHold;
+
 drop table if exists Book;
 
 drop table if exists Borrow;
 
+drop table if exists BorrowHistory;
+
+drop table if exists BorrowOutbox;
+
+drop table if exists DepartClosure;
+
 drop table if exists Depart;
 
+drop table if exists FineCheckpoint;
+
+drop table if exists UserLoanSummary;
+
 drop table if exists TUser;
 
+drop table if exists TokenRevocation;
+
+drop table if exists EntityVersion;
+
+drop table if exists EntityChange;
+
+drop table if exists JobWatermark;
+
+drop table if exists OutboxReader;
+
 /*==============================================================*/
 /* Table: Book                                                  */
 /*==============================================================*/
@@ -30,6 +54,24 @@ create table Book
    primary key (BookID)
 );
 
+/*==============================================================*/
+/* Table: BookHold                                              */
+/*==============================================================*/
+create table BookHold
+(
+   HoldID               bigint not null auto_increment,
+   BookID               char(10) not null,
+   UserID               char(6) not null,
+   Status               varchar(10) not null,
+   CreatedAt            datetime not null,
+   ReadyAt              datetime,
+   ExpiresAt            datetime,
+   primary key (HoldID),
+   key idx_hold_book (BookID, Status, HoldID),
+   key idx_hold_user (UserID, BookID, Status),
+   key idx_hold_expires (Status, ExpiresAt)
+);
+
 /*==============================================================*/
 /* Table: Borrow                                                */
 /*==============================================================*/
@@ -41,7 +83,47 @@ create table Borrow
    ReturnTime           datetime,
    PenalSum             numeric(5,2),
    Payment              numeric(5,2),
-   primary key (UserID, BookID)
+   primary key (UserID, BookID),
+   key idx_borrow_user_time (UserID, BorrowTime, ReturnTime, PenalSum, Payment),
+   key idx_borrow_book_time (BookID, BorrowTime, ReturnTime, PenalSum, Payment)
+);
+
+/*==============================================================*/
+/* Table: BorrowHistory                                         */
+/* 已归档的借阅记录，按归还年份分区；分区表不支持外键            */
+/*==============================================================*/
+create table BorrowHistory
+(
+   HistoryID            bigint not null auto_increment,
+   UserID               char(6) not null,
+   BookID               char(10) not null,
+   BorrowTime           datetime,
+   ReturnTime           datetime not null,
+   PenalSum             numeric(5,2),
+   Payment              numeric(5,2),
+   primary key (HistoryID, ReturnTime),
+   key idx_history_user (UserID, BorrowTime),
+   key idx_history_book (BookID)
+)
+partition by range (year(ReturnTime))
+(
+   partition p2023 values less than (2024),
+   partition p2024 values less than (2025),
+   partition p2025 values less than (2026),
+   partition p2026 values less than (2027),
+   partition pmax values less than maxvalue
+);
+
+/*==============================================================*/
+/* Table: Inventory                                             */
+/*==============================================================*/
+create table Inventory
+(
+   BookID               char(10) not null,
+   Total                int not null default 1,
+   Available            int not null default 1,
+   Version              int not null default 0,
+   primary key (BookID)
 );
 
 /*==============================================================*/
@@ -55,6 +137,37 @@ create table Depart
    primary key (DepartID)
 );
 
+/*==============================================================*/
+/* Table: DepartClosure                                         */
+/*==============================================================*/
+create table DepartClosure
+(
+   AncestorID           char(4) not null,
+   DescendantID         char(4) not null,
+   Depth                int not null,
+   primary key (AncestorID, DescendantID),
+   key idx_closure_descendant (DescendantID, AncestorID, Depth)
+);
+
+/*==============================================================*/
+/* Table: FineCheckpoint                                        */
+/*==============================================================*/
+create table FineCheckpoint
+(
+   RunDate              date not null,
+   PartitionNo          int not null,
+   LowUserID            char(6),
+   HighUserID           char(6),
+   LastUserID           char(6),
+   LastBookID           char(10),
+   Scanned              bigint not null default 0,
+   Updated              bigint not null default 0,
+   Done                 tinyint(1) not null default 0,
+   Owner                varchar(64),
+   LeaseUntil           datetime,
+   primary key (RunDate, PartitionNo)
+);
+
 /*==============================================================*/
 /* Table: User                                                  */
 /*==============================================================*/
@@ -66,7 +179,101 @@ create table TUser
    Password             varchar(10),
    PhoneNum             char(11),
    Sex                  char(2),
-   primary key (UserID)
+   primary key (UserID),
+   unique key uk_tuser_username (UserName)
+);
+
+/*==============================================================*/
+/* Table: BorrowOutbox                                          */
+/*==============================================================*/
+create table BorrowOutbox
+(
+   EventID              bigint not null auto_increment,
+   EventType            varchar(20) not null,
+   UserID               char(6) not null,
+   BookID               char(10) not null,
+   Amount               bigint,
+   CreatedAt            datetime not null,
+   Attempts             int not null default 0,
+   Delivered            tinyint(1) not null default 0,
+   Owner                varchar(64),
+   LeaseUntil           datetime,
+   primary key (EventID),
+   key idx_outbox_user (UserID, EventID),
+   key idx_outbox_pending (Delivered, EventID)
+);
+
+/*==============================================================*/
+/* Table: UserLoanSummary                                       */
+/*==============================================================*/
+create table UserLoanSummary
+(
+   UserID               char(6) not null,
+   ActiveCount          int not null default 0,
+   OverdueCount         int not null default 0,
+   OutstandingCents     bigint not null default 0,
+   UpdatedAt            datetime(3) not null default current_timestamp(3) on update current_timestamp(3),
+   primary key (UserID),
+   key idx_summary_updated (UpdatedAt, UserID)
+);
+
+/*==============================================================*/
+/* Table: TokenRevocation                                       */
+/*==============================================================*/
+create table TokenRevocation
+(
+   RevokeID             bigint not null auto_increment,
+   TokenID              char(16) not null,
+   ExpiresAt            bigint not null,
+   primary key (RevokeID),
+   unique key uk_revocation_token (TokenID),
+   key idx_revocation_expires (ExpiresAt)
+);
+
+/*==============================================================*/
+/* Table: EntityVersion                                         */
+/*==============================================================*/
+create table EntityVersion
+(
+   TableName            varchar(20) not null,
+   Stripe               int not null,
+   Version              bigint not null,
+   primary key (TableName, Stripe)
+);
+
+/*==============================================================*/
+/* Table: EntityChange                                          */
+/*==============================================================*/
+create table EntityChange
+(
+   TableName            varchar(20) not null,
+   EntityID             varchar(20) not null,
+   Version              bigint not null,
+   primary key (TableName, EntityID),
+   key idx_change_version (TableName, Version)
+);
+
+/*==============================================================*/
+/* Table: JobWatermark                                          */
+/*==============================================================*/
+create table JobWatermark
+(
+   Name                 varchar(30) not null,
+   Watermark            bigint not null,
+   Owner                varchar(64),
+   LeaseUntil           datetime,
+   primary key (Name)
+);
+
+/*==============================================================*/
+/* Table: OutboxReader                                          */
+/*==============================================================*/
+create table OutboxReader
+(
+   Instance             varchar(64) not null,
+   LastEventID          bigint not null,
+   SeenAt               datetime not null,
+   primary key (Instance)
 );
 
 alter table Borrow add constraint FK_Borrow foreign key (BookID)
@@ -75,9 +282,24 @@ alter table Borrow add constraint FK_Borrow foreign key (BookID)
 alter table Borrow add constraint FK_Borrow2 foreign key (UserID)
       references TUser (UserID) on delete restrict on update restrict;
 
+alter table Inventory add constraint FK_Inventory foreign key (BookID)
+      references Book (BookID) on delete cascade on update restrict;
+
+alter table BookHold add constraint FK_BookHold foreign key (BookID)
+      references Book (BookID) on delete cascade on update restrict;
+
+alter table BookHold add constraint FK_BookHold2 foreign key (UserID)
+      references TUser (UserID) on delete cascade on update restrict;
+
 alter table Depart add constraint FK_FK_ParentDepartID foreign key (ParentDepartID)
       references Depart (DepartID) on delete restrict on update restrict;
 
+alter table DepartClosure add constraint FK_Closure_Ancestor foreign key (AncestorID)
+      references Depart (DepartID) on delete cascade on update restrict;
+
+alter table DepartClosure add constraint FK_Closure_Descendant foreign key (DescendantID)
+      references Depart (DepartID) on delete cascade on update restrict;
+
 alter table TUser add constraint FK_FK_User_DepartID foreign key (DepartID)
       references Depart (DepartID) on delete restrict on update restrict;
 